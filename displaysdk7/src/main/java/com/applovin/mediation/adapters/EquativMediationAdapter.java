@@ -1,13 +1,19 @@
 package com.applovin.mediation.adapters;
 
 import android.app.Activity;
+import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.LruCache;
 import android.view.View;
 import android.view.ViewGroup;
+import android.webkit.WebSettings;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
@@ -45,9 +51,43 @@ import com.smartadserver.android.library.util.SASLibraryInfo;
 import com.smartadserver.android.library.util.SASSecondaryImplementationInfo;
 import com.smartadserver.android.library.util.SASUtil;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class is an implementation of all AppLovin mediation adapters compatible with Equativ Display SDK v7.x.
@@ -58,6 +98,77 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
 
     private static final String ADAPTER_VERSION = "1.3";
 
+    private static final int DEFAULT_NATIVE_ASSET_POOL_SIZE = 2;
+    private static final int DEFAULT_NATIVE_ASSET_QUEUE_LIMIT = 32;
+    private static final long NATIVE_ASSET_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    // Executor shared by all adapter instances to download and decode native ad assets
+    @Nullable
+    private static ThreadPoolExecutor nativeAssetExecutor = null;
+
+    private static int nativeAssetPoolSize = DEFAULT_NATIVE_ASSET_POOL_SIZE;
+
+    private static int nativeAssetQueueLimit = DEFAULT_NATIVE_ASSET_QUEUE_LIMIT;
+
+    @NonNull
+    private static final AtomicLong nativeAssetRejectedTaskCount = new AtomicLong();
+
+    @Nullable
+    private static volatile NativeAssetTimingListener nativeAssetTimingListener = null;
+
+    // AppLovin MAX does not pass its load timeout to the adapters, so the native ad load deadline is a configured
+    // duration, counted from the request
+    private static final long DEFAULT_NATIVE_ASSET_LOAD_TIMEOUT = 10000;
+
+    private static volatile long nativeAssetLoadTimeout = DEFAULT_NATIVE_ASSET_LOAD_TIMEOUT;
+
+    @NonNull
+    private static volatile NativeAssetTimeoutPolicy nativeAssetTimeoutPolicy = NativeAssetTimeoutPolicy.DELIVER_WITHOUT_MISSING_ASSETS;
+
+    private static final int DEFAULT_NATIVE_IMAGE_CACHE_SIZE = (int) Math.min(Runtime.getRuntime().maxMemory() / 32, 8 * 1024 * 1024);
+
+    // Cache of decoded native ad images shared by all adapter instances, null if disabled
+    @Nullable
+    private static volatile NativeImageCache nativeImageCache = new NativeImageCache(DEFAULT_NATIVE_IMAGE_CACHE_SIZE);
+
+    private static final long DEFAULT_NATIVE_ASSET_DISK_CACHE_SIZE = 20 * 1024 * 1024;
+
+    private static volatile long nativeAssetDiskCacheMaxSize = DEFAULT_NATIVE_ASSET_DISK_CACHE_SIZE;
+
+    @Nullable
+    private static volatile Context nativeAssetDiskCacheContext = null;
+
+    // Guards the opening of the disk cache, without contending with the other class-level locks
+    @NonNull
+    private static final Object nativeAssetDiskCacheLock = new Object();
+
+    // Disk cache of native ad images shared by all adapter instances, opened on first use
+    @Nullable
+    private static NativeAssetDiskCache nativeAssetDiskCache = null;
+
+    // Site id SASConfiguration was last configured with in this process, 0 if not configured
+    @NonNull
+    private static final AtomicInteger sdkConfiguredSiteId = new AtomicInteger(0);
+
+    // Serializes the SDK configuration, so that concurrent calls never configure it at the same time
+    @NonNull
+    private static final Object sdkConfigurationLock = new Object();
+
+    @NonNull
+    private static final AtomicBoolean sdkWarmUpStarted = new AtomicBoolean(false);
+
+    private static volatile boolean webViewPrewarmEnabled = false;
+
+    private static volatile boolean liveObjectTrackingEnabled = false;
+
+    private static final int LIVE_OBJECTS_MIN_PRUNE_SIZE = 64;
+
+    // SDK objects created by the adapter while the live object tracking is enabled, guarded by the list itself
+    @NonNull
+    private static final List<WeakReference<Object>> liveObjects = new ArrayList<>();
+
+    private static int liveObjectsPruneSize = LIVE_OBJECTS_MIN_PRUNE_SIZE;
+
     @Nullable
     private SASBannerView bannerView = null;
 
@@ -73,6 +184,17 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
     @Nullable
     private EquativMaxNativeAd equativMaxNativeAd = null;
 
+    // Guards the native assets loader, set from the SDK callback thread and cancelled from the main thread
+    @NonNull
+    private final Object nativeAssetsLoaderLock = new Object();
+
+    // guarded by nativeAssetsLoaderLock
+    @Nullable
+    private NativeAssetsLoader nativeAssetsLoader = null;
+
+    // guarded by nativeAssetsLoaderLock, so that no native assets loader is started once the adapter is destroyed
+    private boolean destroyed = false;
+
     public EquativMediationAdapter(AppLovinSdk appLovinSdk) {
         super(appLovinSdk);
     }
@@ -84,6 +206,20 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
                 AppLovinSdk.VERSION,
                 ADAPTER_VERSION
         ));
+
+        if (activity != null) {
+            // the optional App ID of the custom network is used as site id to configure the SDK ahead of the first request
+            int siteId = 0;
+            try {
+                String appId = maxAdapterInitializationParameters.getServerParameters().getString("app_id");
+                if (appId != null) {
+                    siteId = Integer.parseInt(appId.trim());
+                }
+            } catch (Exception ignored) {
+            }
+            startSdkWarmUp(activity.getApplicationContext(), siteId);
+        }
+
         onCompletionListener.onCompletion(InitializationStatus.DOES_NOT_APPLY, null);
     }
 
@@ -111,7 +247,12 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
 
         if (rewardedVideoManager != null) {
             rewardedVideoManager.reset();
-            interstitialManager = null;
+            rewardedVideoManager = null;
+        }
+
+        synchronized (nativeAssetsLoaderLock) {
+            destroyed = true;
+            cancelNativeAssetsLoader();
         }
 
         if (equativMaxNativeAd != null) {
@@ -125,6 +266,124 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
         }
     }
 
+    /// Live object tracking
+
+    /**
+     * Enable the tracking of the Equativ Display SDK objects created by the adapter, to find leaks in debug builds:
+     * once their ads are destroyed and the garbage collector has run, these objects should no longer be live.
+     * Only the objects created while the tracking is enabled are counted. It should stay disabled in release builds.
+     *
+     * @param enabled true to track the SDK objects created by the adapter (disabled by default).
+     */
+    public static void setLiveObjectTrackingEnabled(boolean enabled) {
+        liveObjectTrackingEnabled = enabled;
+    }
+
+    /**
+     * @return the number of tracked SDK objects that are not garbage collected yet, by class name.
+     */
+    @NonNull
+    public static Map<String, Integer> getLiveObjectCounts() {
+        Map<String, Integer> liveObjectCounts = new HashMap<>();
+        synchronized (liveObjects) {
+            pruneLiveObjects();
+            for (WeakReference<Object> liveObject : liveObjects) {
+                Object object = liveObject.get();
+                if (object != null) {
+                    String className = object.getClass().getSimpleName();
+                    Integer count = liveObjectCounts.get(className);
+                    liveObjectCounts.put(className, count != null ? count + 1 : 1);
+                }
+            }
+        }
+        return liveObjectCounts;
+    }
+
+    /**
+     * Track the given SDK object if the live object tracking is enabled.
+     *
+     * @return the given object.
+     */
+    @NonNull
+    private static <T> T trackLiveObject(@NonNull T object) {
+        if (liveObjectTrackingEnabled) {
+            synchronized (liveObjects) {
+                // garbage collected objects are pruned as the list grows
+                if (liveObjects.size() >= liveObjectsPruneSize) {
+                    pruneLiveObjects();
+                    liveObjectsPruneSize = Math.max(LIVE_OBJECTS_MIN_PRUNE_SIZE, liveObjects.size() * 2);
+                }
+                liveObjects.add(new WeakReference<>(object));
+            }
+        }
+        return object;
+    }
+
+    private static void pruneLiveObjects() {
+        Iterator<WeakReference<Object>> iterator = liveObjects.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /// SDK configuration
+
+    /**
+     * Enable the warm up of the WebView engine in the background when the adapter is initialized, so that
+     * the first ad does not pay for it. Must be called before AppLovin MAX initializes the adapter.
+     *
+     * @param enabled true to warm up the WebView engine at initialization (disabled by default).
+     */
+    public static void setWebViewPrewarmEnabled(boolean enabled) {
+        webViewPrewarmEnabled = enabled;
+    }
+
+    /**
+     * Configure the Smart Display SDK with the given site id if it was not already configured with it in this
+     * process. The check is lock-free once configured, the configuration itself runs under a lock so that it
+     * happens once per site id, and never concurrently.
+     */
+    private static void configureSdkIfNeeded(@NonNull Context context, int siteId) {
+        if (sdkConfiguredSiteId.get() != siteId) {
+            synchronized (sdkConfigurationLock) {
+                if (sdkConfiguredSiteId.get() != siteId) {
+                    SASConfiguration.getSharedInstance().configure(context, siteId);
+                    sdkConfiguredSiteId.set(siteId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Configure the SDK if a site id is known and optionally warm up the WebView engine on a background thread, once per process.
+     */
+    private static void startSdkWarmUp(@NonNull Context applicationContext, int siteId) {
+        if (!sdkWarmUpStarted.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread warmUpThread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                if (siteId > 0) {
+                    configureSdkIfNeeded(applicationContext, siteId);
+                }
+
+                if (webViewPrewarmEnabled) {
+                    // loads the WebView provider without creating any view
+                    WebSettings.getDefaultUserAgent(applicationContext);
+                }
+            } catch (Exception e) {
+                // the SDK will be configured again by the first ad request
+                e.printStackTrace();
+            }
+        }, "EquativSdkWarmUp");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
     /**
      * Convert the raw placement string to a SASAdPlacement model object.
      * The raw placement string is the value set in PlacementId section of your custom network
@@ -165,6 +424,27 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
         return new SASAdPlacement(siteId, pageId, formatId, targeting);
     }
 
+    /// Bidding
+
+    /**
+     * The adapter is set up in AppLovin MAX as a custom network, which AppLovin MAX only calls in waterfall lines:
+     * it runs no bidding auction with Equativ, so the adapter provides no bidding signals and a request carrying
+     * a bid response is a misconfiguration. The in-app bidding API of the SDK ({@code SASBiddingManager}) runs
+     * its own Equativ auction from the app, it does not consume the bid responses of AppLovin MAX. A bid response
+     * must not be answered with an ad loaded from the placement, which AppLovin MAX would report and charge at the
+     * bid price.
+     *
+     * @return true if AppLovin MAX provided a bid response, in which case the load must fail.
+     */
+    private boolean isBidResponse(@NonNull MaxAdapterResponseParameters maxAdapterResponseParameters) {
+        String bidResponse = maxAdapterResponseParameters.getBidResponse();
+        if (bidResponse != null && !bidResponse.isEmpty()) {
+            Log.e(mediationTag(), "Bid responses are not supported by the Equativ custom network adapter, it must be set up in a waterfall line with a PlacementId.");
+            return true;
+        }
+        return false;
+    }
+
     /// Banner adapter implementation
 
     @Override
@@ -177,13 +457,18 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
             return;
         }
 
+        if (isBidResponse(maxAdapterResponseParameters)) {
+            maxAdViewAdapterListener.onAdViewAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
+            return;
+        }
+
         // Configure Smart Display SDK with siteid
-        SASConfiguration.getSharedInstance().configure(activity, (int) adPlacement.getSiteId());
+        configureSdkIfNeeded(activity, (int) adPlacement.getSiteId());
 
         // Execute in UI thread
         SASUtil.getMainLooperHandler().post(() -> {
             if (bannerView == null) {
-                bannerView = new SASBannerView(activity);
+                bannerView = trackLiveObject(new SASBannerView(activity));
             }
 
             bannerView.setBannerListener(new SASBannerView.BannerListener() {
@@ -197,7 +482,7 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
                 public void onBannerAdFailedToLoad(@NonNull SASBannerView sasBannerView, @NonNull Exception e) {
                     if (e instanceof SASNoAdToDeliverException) {
                         maxAdViewAdapterListener.onAdViewAdLoadFailed(MaxAdapterError.NO_FILL);
-                    } if (e instanceof SASAdTimeoutException) {
+                    } else if (e instanceof SASAdTimeoutException) {
                         maxAdViewAdapterListener.onAdViewAdLoadFailed(MaxAdapterError.TIMEOUT);
                     } else {
                         maxAdViewAdapterListener.onAdViewAdLoadFailed(MaxAdapterError.UNSPECIFIED);
@@ -251,8 +536,13 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
             return;
         }
 
+        if (isBidResponse(maxAdapterResponseParameters)) {
+            maxInterstitialAdapterListener.onInterstitialAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
+            return;
+        }
+
         // Configure Smart Display SDK with siteid
-        SASConfiguration.getSharedInstance().configure(activity, (int) adPlacement.getSiteId());
+        configureSdkIfNeeded(activity, (int) adPlacement.getSiteId());
 
         // Execute in UI thread
         SASUtil.getMainLooperHandler().post(() -> {
@@ -261,7 +551,7 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
                 interstitialManager = null;
             }
 
-            interstitialManager = new SASInterstitialManager(activity, adPlacement);
+            interstitialManager = trackLiveObject(new SASInterstitialManager(activity, adPlacement));
 
             interstitialManager.setInterstitialListener(new SASInterstitialManager.InterstitialListener() {
 
@@ -274,7 +564,7 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
                 public void onInterstitialAdFailedToLoad(@NonNull SASInterstitialManager sasInterstitialManager, @NonNull Exception e) {
                     if (e instanceof SASNoAdToDeliverException) {
                         maxInterstitialAdapterListener.onInterstitialAdLoadFailed(MaxAdapterError.NO_FILL);
-                    } if (e instanceof SASAdTimeoutException) {
+                    } else if (e instanceof SASAdTimeoutException) {
                         maxInterstitialAdapterListener.onInterstitialAdLoadFailed(MaxAdapterError.TIMEOUT);
                     } else {
                         maxInterstitialAdapterListener.onInterstitialAdLoadFailed(MaxAdapterError.UNSPECIFIED);
@@ -332,8 +622,13 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
             return;
         }
 
+        if (isBidResponse(maxAdapterResponseParameters)) {
+            maxRewardedAdapterListener.onRewardedAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
+            return;
+        }
+
         // Configure Smart Display SDK with siteid
-        SASConfiguration.getSharedInstance().configure(activity, (int) adPlacement.getSiteId());
+        configureSdkIfNeeded(activity, (int) adPlacement.getSiteId());
 
         // Execute on UI thread
         SASUtil.getMainLooperHandler().post(() -> {
@@ -342,7 +637,7 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
                 rewardedVideoManager = null;
             }
 
-            rewardedVideoManager = new SASRewardedVideoManager(activity, adPlacement);
+            rewardedVideoManager = trackLiveObject(new SASRewardedVideoManager(activity, adPlacement));
 
             rewardedVideoManager.setRewardedVideoListener(new SASRewardedVideoManager.RewardedVideoListener() {
                 @Override
@@ -354,7 +649,7 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
                 public void onRewardedVideoAdFailedToLoad(@NonNull SASRewardedVideoManager sasRewardedVideoManager, @NonNull Exception e) {
                     if (e instanceof SASNoAdToDeliverException) {
                         maxRewardedAdapterListener.onRewardedAdLoadFailed(MaxAdapterError.NO_FILL);
-                    } if (e instanceof SASAdTimeoutException) {
+                    } else if (e instanceof SASAdTimeoutException) {
                         maxRewardedAdapterListener.onRewardedAdLoadFailed(MaxAdapterError.TIMEOUT);
                     } else {
                         maxRewardedAdapterListener.onRewardedAdLoadFailed(MaxAdapterError.UNSPECIFIED);
@@ -434,6 +729,9 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
 
     @Override
     public void loadNativeAd(MaxAdapterResponseParameters maxAdapterResponseParameters, Activity activity, MaxNativeAdAdapterListener maxNativeAdAdapterListener) {
+        // the deadline of the native ad assets download is counted from the AppLovin MAX request
+        long nativeAdLoadDeadline = SystemClock.elapsedRealtime() + nativeAssetLoadTimeout;
+
         SASAdPlacement adPlacement = convertToAdPlacement(maxAdapterResponseParameters.getThirdPartyAdPlacementId());
 
         if (adPlacement == null) {
@@ -442,10 +740,21 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
             return;
         }
 
+        if (isBidResponse(maxAdapterResponseParameters)) {
+            maxNativeAdAdapterListener.onNativeAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
+            return;
+        }
+
         // Configure Smart Display SDK with siteid
-        SASConfiguration.getSharedInstance().configure(activity, (int) adPlacement.getSiteId());
+        configureSdkIfNeeded(activity, (int) adPlacement.getSiteId());
+
+        setNativeAssetDiskCacheContext(activity);
 
         // Clean up if needed
+        synchronized (nativeAssetsLoaderLock) {
+            cancelNativeAssetsLoader();
+        }
+
         if (equativMaxNativeAd != null) {
             equativMaxNativeAd.unregisterView();
             equativMaxNativeAd = null;
@@ -456,67 +765,103 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
             nativeAdManager = null;
         }
 
-        nativeAdManager = new SASNativeAdManager(activity, adPlacement);
+        nativeAdManager = trackLiveObject(new SASNativeAdManager(activity, adPlacement));
+
+        // the assets loader drops its listener once finished, when cancelled or at its deadline at the latest, and the
+        // listener only reads the activity through this reference
+        WeakReference<Activity> activityReference = new WeakReference<>(activity);
 
         nativeAdManager.setNativeAdListener(new SASNativeAdManager.NativeAdListener() {
             @Override
             public void onNativeAdLoaded(@NonNull SASNativeAdElement sasNativeAdElement) {
                 sasNativeAdElement.setOnClickListener((s, sasNativeAdElement1) -> maxNativeAdAdapterListener.onNativeAdClicked());
 
-                Bitmap iconBitmap = null;
-                if (sasNativeAdElement.getIcon() != null) {
-                    iconBitmap = EquativMediationAdapter.scaledBitmapFromUrl(
-                            sasNativeAdElement.getIcon().getUrl(),
-                            sasNativeAdElement.getIcon().getWidth(),
-                            sasNativeAdElement.getIcon().getHeight());
-                }
-
-                Bitmap coverBitmap = null;
-                if (sasNativeAdElement.getCoverImage() != null) {
-                    coverBitmap = EquativMediationAdapter.scaledBitmapFromUrl(sasNativeAdElement.getCoverImage().getUrl(), -1, -1);
-                }
-
-                Bitmap finalIconBitmap = iconBitmap;
-                Bitmap finalCoverBitmap = coverBitmap;
-
-                SASUtil.getMainLooperHandler().post(() -> {
-                    MaxNativeAd.MaxNativeAdImage iconImage = null;
-                    if (finalIconBitmap != null) {
-                        Drawable iconDrawable = new BitmapDrawable(activity.getResources(), finalIconBitmap);
-                        iconImage = new MaxNativeAd.MaxNativeAdImage(iconDrawable);
-                    }
-
-                    ImageView coverImageView = null;
-                    if (finalCoverBitmap != null) {
-                        coverImageView = new ImageView(activity);
-                        coverImageView.setImageBitmap(finalCoverBitmap);
-                    }
-
-                    SASNativeAdMediaView mediaView = null;
-                    if (sasNativeAdElement.getMediaElement() != null) {
-                        mediaView = new SASNativeAdMediaView(activity);
-                        mediaView.setNativeAdElement(sasNativeAdElement);
+                // icon and cover are downloaded in parallel on the shared native asset executor, so that the
+                // SDK callback thread is released immediately. The AppLovin listener is always called from the main thread.
+                NativeAssetsLoader assetsLoader = new NativeAssetsLoader(
+                        sasNativeAdElement.getIcon() != null ? NativeImageSpec.fromImageElement(
+                                sasNativeAdElement.getIcon(),
+                                sasNativeAdElement.getIcon().getWidth(),
+                                sasNativeAdElement.getIcon().getHeight()) : null,
+                        NativeImageSpec.fromImageElement(sasNativeAdElement.getCoverImage(), -1, -1),
+                        nativeAdLoadDeadline,
+                        SASUtil.getMainLooperHandler(),
+                        loader -> SASUtil.getMainLooperHandler().post(() -> {
+                            if (loader.isCancelled()) {
+                                return;
+                            }
+
+                            synchronized (nativeAssetsLoaderLock) {
+                                if (nativeAssetsLoader == loader) {
+                                    nativeAssetsLoader = null;
+                                }
+                            }
+
+                            if (loader.isRejected()) {
+                                Log.e(mediationTag(), "The native ad assets download was rejected by the native asset executor (queue depth: " + getNativeAssetQueueDepth() + ").");
+                                maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.INTERNAL_ERROR);
+                                return;
+                            }
+
+                            if (loader.isTimedOut() && nativeAssetTimeoutPolicy == NativeAssetTimeoutPolicy.FAIL) {
+                                Log.e(mediationTag(), "The native ad assets could not be downloaded before the native ad load timeout.");
+                                maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.TIMEOUT);
+                                return;
+                            }
+
+                            Activity currentActivity = activityReference.get();
+                            if (currentActivity == null || currentActivity.isFinishing()) {
+                                Log.e(mediationTag(), "The activity of the native ad was destroyed while its assets were downloaded.");
+                                maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.UNSPECIFIED);
+                                return;
+                            }
+
+                            MaxNativeAd.MaxNativeAdImage iconImage = null;
+                            if (loader.getIconBitmap() != null) {
+                                Drawable iconDrawable = new BitmapDrawable(currentActivity.getResources(), loader.getIconBitmap());
+                                iconImage = new MaxNativeAd.MaxNativeAdImage(iconDrawable);
+                            }
+
+                            ImageView coverImageView = null;
+                            if (loader.getCoverBitmap() != null) {
+                                coverImageView = new ImageView(currentActivity);
+                                coverImageView.setImageBitmap(loader.getCoverBitmap());
+                            }
+
+                            SASNativeAdMediaView mediaView = null;
+                            if (sasNativeAdElement.getMediaElement() != null) {
+                                mediaView = trackLiveObject(new SASNativeAdMediaView(currentActivity));
+                                mediaView.setNativeAdElement(sasNativeAdElement);
+                            }
+
+                            MaxNativeAd.Builder maxNativeAdBuilder = new MaxNativeAd.Builder()
+                                    .setTitle(sasNativeAdElement.getTitle())
+                                    .setBody(sasNativeAdElement.getBody())
+                                    .setCallToAction(sasNativeAdElement.getCalltoAction())
+                                    .setStarRating((double)sasNativeAdElement.getRating())
+                                    .setIcon(iconImage)
+                                    .setMediaView(mediaView != null ? mediaView : coverImageView);
+
+                            EquativMediationAdapter.this.equativMaxNativeAd = new EquativMaxNativeAd(maxNativeAdBuilder, sasNativeAdElement, maxNativeAdAdapterListener);
+
+                            maxNativeAdAdapterListener.onNativeAdLoaded(equativMaxNativeAd, null);
+                        }));
+
+                // the adapter may have been destroyed on the main thread while the SDK was loading the native ad
+                synchronized (nativeAssetsLoaderLock) {
+                    if (destroyed) {
+                        return;
                     }
-
-                    MaxNativeAd.Builder maxNativeAdBuilder = new MaxNativeAd.Builder()
-                            .setTitle(sasNativeAdElement.getTitle())
-                            .setBody(sasNativeAdElement.getBody())
-                            .setCallToAction(sasNativeAdElement.getCalltoAction())
-                            .setStarRating((double)sasNativeAdElement.getRating())
-                            .setIcon(iconImage)
-                            .setMediaView(mediaView != null ? mediaView : coverImageView);
-
-                    EquativMediationAdapter.this.equativMaxNativeAd = new EquativMaxNativeAd(maxNativeAdBuilder, sasNativeAdElement, maxNativeAdAdapterListener);
-
-                    maxNativeAdAdapterListener.onNativeAdLoaded(equativMaxNativeAd, null);
-                });
+                    EquativMediationAdapter.this.nativeAssetsLoader = assetsLoader;
+                    assetsLoader.start();
+                }
             }
 
             @Override
             public void onNativeAdFailedToLoad(@NonNull Exception e) {
                 if (e instanceof SASNoAdToDeliverException) {
                     maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.NO_FILL);
-                } if (e instanceof SASAdTimeoutException) {
+                } else if (e instanceof SASAdTimeoutException) {
                     maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.TIMEOUT);
                 } else {
                     maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.UNSPECIFIED);
@@ -527,26 +872,980 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
         nativeAdManager.loadNativeAd();
     }
 
-    @Nullable
-    private static Bitmap scaledBitmapFromUrl(@Nullable String url, int targetWidth, int targetHeight) {
-        Bitmap result = null;
-        try {
-            InputStream inputStream = (InputStream) new URL(url).getContent();
-            result = BitmapFactory.decodeStream(inputStream);
-            if (targetWidth > 0 && targetHeight > 0) {
-                double bWidth = result.getWidth();
-                double bHeight = result.getHeight();
-                double resizeRatio = Math.min(targetWidth / bWidth, targetHeight / bHeight);
-
-                result = Bitmap.createScaledBitmap(
-                        result,
-                        (int)(bWidth * resizeRatio),
-                        (int)(bHeight * resizeRatio),
-                        true
-                );
+    // must be called with nativeAssetsLoaderLock held
+    private void cancelNativeAssetsLoader() {
+        if (nativeAssetsLoader != null) {
+            nativeAssetsLoader.cancel();
+            nativeAssetsLoader = null;
+        }
+    }
+
+    /// Native asset executor
+
+    /**
+     * Configure the executor shared by all adapter instances to download and decode native ad assets.
+     * If native ads were already loaded, the current executor is shut down once its pending tasks are
+     * done and a new one is created with this configuration.
+     *
+     * @param poolSize The maximum number of threads downloading native ad assets at the same time.
+     * @param queueLimit The maximum number of download tasks waiting for a thread, each native ad submitting one task
+     *                   for its icon and one for its cover. When both the pool and the queue are full, new downloads
+     *                   are rejected: the native ad load fails with an internal error and the rejection is counted,
+     *                   see {@link #getNativeAssetRejectedTaskCount()}.
+     */
+    public static synchronized void configureNativeAssetExecutor(int poolSize, int queueLimit) {
+        nativeAssetPoolSize = Math.max(1, poolSize);
+        nativeAssetQueueLimit = Math.max(1, queueLimit);
+
+        if (nativeAssetExecutor != null) {
+            nativeAssetExecutor.shutdown();
+            nativeAssetExecutor = null;
+        }
+    }
+
+    /**
+     * @return the number of download tasks currently waiting for a native asset executor thread.
+     */
+    public static synchronized int getNativeAssetQueueDepth() {
+        return nativeAssetExecutor != null ? nativeAssetExecutor.getQueue().size() : 0;
+    }
+
+    /**
+     * @return the number of download tasks currently running on the native asset executor.
+     */
+    public static synchronized int getNativeAssetActiveTaskCount() {
+        return nativeAssetExecutor != null ? nativeAssetExecutor.getActiveCount() : 0;
+    }
+
+    /**
+     * @return the number of tasks rejected by the native asset executor because its pool and its queue were full.
+     */
+    public static long getNativeAssetRejectedTaskCount() {
+        return nativeAssetRejectedTaskCount.get();
+    }
+
+    @NonNull
+    private static synchronized ThreadPoolExecutor getNativeAssetExecutor() {
+        if (nativeAssetExecutor == null) {
+            nativeAssetExecutor = new ThreadPoolExecutor(
+                    nativeAssetPoolSize,
+                    nativeAssetPoolSize,
+                    NATIVE_ASSET_THREAD_KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(nativeAssetQueueLimit),
+                    new NativeAssetThreadFactory(),
+                    new NativeAssetRejectionHandler()
+            );
+            nativeAssetExecutor.allowCoreThreadTimeOut(true);
+        }
+        return nativeAssetExecutor;
+    }
+
+    /**
+     * Counts and aborts the tasks rejected by the native asset executor. Submitters handle the abort explicitly,
+     * a rejected task is never run on the submitting thread nor silently dropped.
+     */
+    private static class NativeAssetRejectionHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(@NonNull Runnable runnable, @NonNull ThreadPoolExecutor executor) {
+            nativeAssetRejectedTaskCount.incrementAndGet();
+            throw new RejectedExecutionException("Native asset executor saturated (queue depth: " + executor.getQueue().size() + ")");
+        }
+    }
+
+    private static class NativeAssetThreadFactory implements ThreadFactory {
+
+        @NonNull
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                // keep asset downloads from competing with the UI thread
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "EquativNativeAsset-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /// Native assets loading
+
+    /**
+     * Listener notified of the time spent downloading and decoding the assets of each native ad.
+     * It is called from a native asset executor thread.
+     */
+    public interface NativeAssetTimingListener {
+
+        /**
+         * @param iconLoadTime The time spent downloading and decoding the icon in milliseconds, 0 if the ad has no icon.
+         * @param coverLoadTime The time spent downloading and decoding the cover in milliseconds, 0 if the ad has no cover.
+         * @param totalLoadTime The time elapsed until all the assets of the native ad were available, in milliseconds.
+         */
+        void onNativeAssetsLoaded(long iconLoadTime, long coverLoadTime, long totalLoadTime);
+    }
+
+    /**
+     * Set the listener notified of the time spent loading the assets of each native ad.
+     *
+     * @param listener The listener to notify, or null to stop the notifications.
+     */
+    public static void setNativeAssetTimingListener(@Nullable NativeAssetTimingListener listener) {
+        nativeAssetTimingListener = listener;
+    }
+
+    /**
+     * Policy applied when the assets of a native ad are not loaded before the deadline of the native ad load.
+     */
+    public enum NativeAssetTimeoutPolicy {
+
+        /**
+         * The native ad is delivered without the images that could not be loaded in time.
+         */
+        DELIVER_WITHOUT_MISSING_ASSETS,
+
+        /**
+         * The native ad load fails with a {@link MaxAdapterError#TIMEOUT} error.
+         */
+        FAIL
+    }
+
+    /**
+     * Set the time allowed to load a native ad and its assets, counted from the native ad request made by
+     * AppLovin MAX. Asset downloads still running when this deadline is reached are aborted, and the
+     * native ad is handled according to the {@link NativeAssetTimeoutPolicy}. AppLovin MAX does not pass the
+     * load timeout of its request to the adapters: set a timeout below the one configured for the ad unit so that
+     * the native ad is delivered before AppLovin MAX gives up on it.
+     *
+     * @param timeoutMillis The native ad load timeout in milliseconds, 10 seconds by default.
+     * @param policy The policy applied when assets are still missing once the timeout is reached.
+     */
+    public static void setNativeAssetLoadTimeout(long timeoutMillis, @NonNull NativeAssetTimeoutPolicy policy) {
+        nativeAssetLoadTimeout = Math.max(0, timeoutMillis);
+        nativeAssetTimeoutPolicy = policy;
+    }
+
+    /**
+     * Describes a native ad image to download and the size it should be scaled to.
+     */
+    private static class NativeImageSpec {
+
+        @NonNull
+        private final String url;
+
+        private final int targetWidth;
+
+        private final int targetHeight;
+
+        public NativeImageSpec(@NonNull String url, int targetWidth, int targetHeight) {
+            this.url = url;
+            this.targetWidth = targetWidth;
+            this.targetHeight = targetHeight;
+        }
+
+        @Nullable
+        private static NativeImageSpec fromImageElement(@Nullable SASNativeAdElement.ImageElement imageElement, int targetWidth, int targetHeight) {
+            if (imageElement == null || imageElement.getUrl() == null || imageElement.getUrl().isEmpty()) {
+                return null;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+
+            return new NativeImageSpec(imageElement.getUrl(), targetWidth, targetHeight);
+        }
+    }
+
+    /**
+     * Downloads the icon and the cover of a native ad in parallel on the native asset executor, and
+     * notifies its listener once both of them are available, the deadline of the load is reached or
+     * the load is cancelled. The listener is always called exactly once.
+     */
+    private static class NativeAssetsLoader {
+
+        private interface Listener {
+            void onNativeAssetsLoaded(@NonNull NativeAssetsLoader loader);
+        }
+
+        @Nullable
+        private final NativeImageSpec iconSpec;
+
+        @Nullable
+        private final NativeImageSpec coverSpec;
+
+        // elapsed realtime after which in-flight downloads are aborted
+        private final long deadline;
+
+        @NonNull
+        private final Handler deadlineHandler;
+
+        // cleared once notified, so that a finished loader still referenced by the native asset executor or the
+        // creative HTTP client no longer retains the native ad, the adapter or the activity captured by the listener
+        @Nullable
+        private volatile Listener listener;
+
+        @NonNull
+        private final AtomicInteger pendingAssetCount = new AtomicInteger(2);
+
+        @NonNull
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        @NonNull
+        private final Runnable deadlineRunnable = () -> finish(true, false);
+
+        // guarded by this
+        @NonNull
+        private final List<Future<?>> assetTasks = new ArrayList<>();
+
+        // guarded by this
+        @NonNull
+        private final Set<URLConnection> connections = new HashSet<>();
+
+        private long startTime = 0;
+
+        @Nullable
+        private volatile Bitmap iconBitmap = null;
+
+        @Nullable
+        private volatile Bitmap coverBitmap = null;
+
+        private volatile long iconLoadTime = 0;
+
+        private volatile long coverLoadTime = 0;
+
+        private volatile boolean rejected = false;
+
+        private volatile boolean timedOut = false;
+
+        private volatile boolean cancelled = false;
+
+        public NativeAssetsLoader(@Nullable NativeImageSpec iconSpec,
+                                  @Nullable NativeImageSpec coverSpec,
+                                  long deadline,
+                                  @NonNull Handler deadlineHandler,
+                                  @NonNull Listener listener) {
+            this.iconSpec = iconSpec;
+            this.coverSpec = coverSpec;
+            this.deadline = deadline;
+            this.deadlineHandler = deadlineHandler;
+            this.listener = listener;
+        }
+
+        private void start() {
+            startTime = SystemClock.elapsedRealtime();
+            deadlineHandler.postDelayed(deadlineRunnable, Math.max(0, deadline - startTime));
+            loadAsset(iconSpec, true);
+
+            // a rejected icon fails the load, the cover is not submitted to the saturated executor
+            if (rejected) {
+                onAssetLoaded();
+            } else {
+                loadAsset(coverSpec, false);
+            }
+        }
+
+        /**
+         * Abort the pending downloads. The listener is notified immediately if it was not already.
+         */
+        private void cancel() {
+            finish(false, true);
+        }
+
+        private void loadAsset(@Nullable NativeImageSpec spec, boolean isIcon) {
+            if (spec == null) {
+                onAssetLoaded();
+                return;
+            }
+
+            try {
+                Future<?> assetTask = getNativeAssetExecutor().submit(() -> {
+                    long assetStartTime = SystemClock.elapsedRealtime();
+                    Bitmap bitmap = scaledBitmapFromUrl(spec.url, spec.targetWidth, spec.targetHeight, this);
+                    long assetLoadTime = SystemClock.elapsedRealtime() - assetStartTime;
+
+                    if (isIcon) {
+                        iconBitmap = bitmap;
+                        iconLoadTime = assetLoadTime;
+                    } else {
+                        coverBitmap = bitmap;
+                        coverLoadTime = assetLoadTime;
+                    }
+                    onAssetLoaded();
+                });
+
+                synchronized (this) {
+                    assetTasks.add(assetTask);
+                }
+            } catch (RejectedExecutionException e) {
+                rejected = true;
+                onAssetLoaded();
+            }
+        }
+
+        private void onAssetLoaded() {
+            if (pendingAssetCount.decrementAndGet() == 0) {
+                finish(false, false);
+            }
+        }
+
+        private void finish(boolean timedOut, boolean cancelled) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+
+            deadlineHandler.removeCallbacks(deadlineRunnable);
+            this.timedOut = timedOut;
+            this.cancelled = cancelled;
+
+            if (timedOut || cancelled) {
+                abortPendingDownloads();
+            } else {
+                NativeAssetTimingListener timingListener = nativeAssetTimingListener;
+                if (timingListener != null && !rejected) {
+                    timingListener.onNativeAssetsLoaded(iconLoadTime, coverLoadTime, SystemClock.elapsedRealtime() - startTime);
+                }
+            }
+
+            Listener listener = this.listener;
+            this.listener = null;
+            if (listener != null) {
+                listener.onNativeAssetsLoaded(this);
+            }
+        }
+
+        private void abortPendingDownloads() {
+            List<HttpURLConnection> openConnections = new ArrayList<>();
+            synchronized (this) {
+                for (Future<?> assetTask : assetTasks) {
+                    assetTask.cancel(true);
+                }
+                assetTasks.clear();
+
+                for (URLConnection connection : connections) {
+                    if (connection instanceof HttpURLConnection) {
+                        openConnections.add((HttpURLConnection) connection);
+                    }
+                }
+                connections.clear();
+            }
+
+            if (openConnections.isEmpty()) {
+                return;
+            }
+
+            // disconnecting closes sockets, which must not be done on the main thread this is called from
+            try {
+                getNativeAssetExecutor().execute(() -> {
+                    for (HttpURLConnection connection : openConnections) {
+                        connection.disconnect();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the read timeouts of the connections, bounded by the deadline, end the downloads instead
+            }
+        }
+
+        /**
+         * Register a connection opened to download one of the assets, to abort it if the load times out or is cancelled.
+         *
+         * @return false if the load is already finished, in which case the connection must not be used.
+         */
+        private synchronized boolean registerConnection(@NonNull URLConnection connection) {
+            if (finished.get()) {
+                return false;
+            }
+            connections.add(connection);
+            return true;
+        }
+
+        private synchronized void unregisterConnection(@NonNull URLConnection connection) {
+            connections.remove(connection);
+        }
+
+        private long getRemainingTime() {
+            return deadline - SystemClock.elapsedRealtime();
+        }
+
+        @Nullable
+        private Bitmap getIconBitmap() {
+            return iconBitmap;
+        }
+
+        @Nullable
+        private Bitmap getCoverBitmap() {
+            return coverBitmap;
+        }
+
+        private boolean isRejected() {
+            return rejected;
+        }
+
+        private boolean isTimedOut() {
+            return timedOut;
+        }
+
+        private boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /// Native image cache
+
+    /**
+     * Set the memory budget of the cache of decoded native ad images shared by all adapter instances.
+     * Images are cached by URL and target size, so that repeated impressions of the same creative are
+     * rendered without downloading and decoding it again. Changing the budget clears the cache and its statistics.
+     *
+     * @param maxSizeInBytes The maximum size of the cached bitmaps in bytes, 0 to disable the cache.
+     */
+    public static void setNativeImageCacheSize(int maxSizeInBytes) {
+        NativeImageCache previousCache = nativeImageCache;
+        nativeImageCache = maxSizeInBytes > 0 ? new NativeImageCache(maxSizeInBytes) : null;
+
+        if (previousCache != null) {
+            previousCache.evictAll();
+        }
+    }
+
+    /**
+     * @return the current size of the cached native ad images in bytes.
+     */
+    public static int getNativeImageCacheSize() {
+        NativeImageCache cache = nativeImageCache;
+        return cache != null ? cache.size() : 0;
+    }
+
+    /**
+     * @return the number of native ad images found in the cache.
+     */
+    public static int getNativeImageCacheHitCount() {
+        NativeImageCache cache = nativeImageCache;
+        return cache != null ? cache.hitCount() : 0;
+    }
+
+    /**
+     * @return the number of native ad images that had to be downloaded because they were not in the cache.
+     */
+    public static int getNativeImageCacheMissCount() {
+        NativeImageCache cache = nativeImageCache;
+        return cache != null ? cache.missCount() : 0;
+    }
+
+    /**
+     * @return the number of native ad images evicted from the cache to stay within its memory budget.
+     */
+    public static int getNativeImageCacheEvictionCount() {
+        NativeImageCache cache = nativeImageCache;
+        return cache != null ? cache.evictionCount() : 0;
+    }
+
+    /**
+     * LRU cache of decoded native ad images, keyed by URL and target size and sized by bitmap bytes.
+     */
+    private static class NativeImageCache extends LruCache<String, Bitmap> {
+
+        public NativeImageCache(int maxSizeInBytes) {
+            super(maxSizeInBytes);
+        }
+
+        @NonNull
+        private static String keyFor(@NonNull String url, int targetWidth, int targetHeight) {
+            return targetWidth + "x" + targetHeight + "/" + url;
+        }
+
+        @Override
+        protected int sizeOf(@NonNull String key, @NonNull Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+    }
+
+    /// Native asset disk cache
+
+    /**
+     * Set the byte budget of the on-disk cache of native ad images, stored in the application cache
+     * directory and shared by all adapter instances. This cache survives process restarts, so that
+     * native ads are displayed after a relaunch without downloading their creatives again.
+     *
+     * @param maxSizeInBytes The maximum size of the cached images in bytes, 0 to disable the cache. Images bigger
+     *                       than this size are not cached.
+     */
+    public static void setNativeAssetDiskCacheSize(long maxSizeInBytes) {
+        // an open cache is trimmed to the new size by the next native asset download, off the calling thread
+        nativeAssetDiskCacheMaxSize = Math.max(0, maxSizeInBytes);
+    }
+
+    private static void setNativeAssetDiskCacheContext(@NonNull Context context) {
+        if (nativeAssetDiskCacheContext == null) {
+            nativeAssetDiskCacheContext = context.getApplicationContext();
+        }
+    }
+
+    /**
+     * Open the native asset disk cache if needed, and apply its configured size. It must only be called from the
+     * native asset executor as it reads the cache journal and may delete cached files.
+     *
+     * @return the native asset disk cache, or null if it is disabled or cannot be opened.
+     */
+    @Nullable
+    private static NativeAssetDiskCache getNativeAssetDiskCache() {
+        long maxSize = nativeAssetDiskCacheMaxSize;
+        Context context = nativeAssetDiskCacheContext;
+        if (maxSize <= 0 || context == null) {
+            return null;
+        }
+
+        synchronized (nativeAssetDiskCacheLock) {
+            if (nativeAssetDiskCache == null) {
+                try {
+                    File directory = new File(context.getCacheDir(), NativeAssetDiskCache.DIRECTORY_NAME);
+                    nativeAssetDiskCache = NativeAssetDiskCache.open(directory, maxSize);
+                } catch (IOException e) {
+                    // disable the cache instead of retrying to open it for every image
+                    e.printStackTrace();
+                    nativeAssetDiskCacheMaxSize = 0;
+                    return null;
+                }
+            }
+
+            nativeAssetDiskCache.setMaxSize(maxSize);
+            return nativeAssetDiskCache;
+        }
+    }
+
+    /**
+     * Store downloaded image data in the native asset disk cache once it was decoded, or drop a cached entry
+     * that cannot be decoded, so that the cache never serves undecodable data. It must only be called from the
+     * native asset executor.
+     */
+    private static void updateNativeAssetDiskCache(@NonNull String url, @NonNull byte[] imageData, boolean decoded) {
+        NativeAssetDiskCache diskCache = getNativeAssetDiskCache();
+        if (diskCache == null) {
+            return;
+        }
+
+        if (!decoded) {
+            diskCache.remove(NativeAssetDiskCache.keyFor(url));
+        } else if (!diskCache.contains(url)) {
+            diskCache.put(url, imageData);
+        }
+    }
+
+    /**
+     * Size bounded LRU cache of native ad image bytes, stored as one file per image.
+     * <p>
+     * The index of the cache is kept in memory and persisted in an append-only journal: each line
+     * records a written ('P'), read ('R') or deleted ('D') entry. Image files are written to a temporary
+     * file and renamed before being added to the journal, so that a crash never leaves a truncated
+     * entry in the index. Files not referenced by the journal are deleted when the cache is opened.
+     */
+    private static class NativeAssetDiskCache {
+
+        private static final String DIRECTORY_NAME = "equativ_native_assets";
+        private static final String JOURNAL_FILE_NAME = "journal";
+        private static final String JOURNAL_TEMP_FILE_NAME = "journal.tmp";
+        private static final String TEMP_FILE_SUFFIX = ".tmp";
+        private static final int MAX_REDUNDANT_JOURNAL_LINES = 1000;
+
+        @NonNull
+        private final File directory;
+
+        private long maxSize;
+
+        // entries file names, in access order, mapped to their size in bytes
+        @NonNull
+        private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long size = 0;
+
+        private int redundantJournalLineCount = 0;
+
+        @Nullable
+        private Writer journalWriter = null;
+
+        private NativeAssetDiskCache(@NonNull File directory, long maxSize) {
+            this.directory = directory;
+            this.maxSize = maxSize;
+        }
+
+        @NonNull
+        private static NativeAssetDiskCache open(@NonNull File directory, long maxSize) throws IOException {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create native asset disk cache directory " + directory);
+            }
+
+            NativeAssetDiskCache cache = new NativeAssetDiskCache(directory, maxSize);
+            synchronized (cache) {
+                cache.readJournal();
+                cache.deleteUnreferencedFiles();
+                cache.rebuildJournal();
+                cache.trimToSize();
+            }
+            return cache;
+        }
+
+        @Nullable
+        private byte[] get(@NonNull String url) {
+            String key = keyFor(url);
+            synchronized (this) {
+                if (entries.get(key) == null) {
+                    return null;
+                }
+                appendJournalLine('R', key, 0);
+            }
+
+            // the file is read out of the lock, it may have been evicted in the meantime
+            try {
+                return readFile(new File(directory, key));
+            } catch (IOException e) {
+                remove(key);
+                return null;
+            }
+        }
+
+        private synchronized boolean contains(@NonNull String url) {
+            return entries.containsKey(keyFor(url));
+        }
+
+        private void put(@NonNull String url, @NonNull byte[] data) {
+            // an entry bigger than the whole budget would evict all the other entries, then itself
+            synchronized (this) {
+                if (data.length > maxSize) {
+                    return;
+                }
+            }
+
+            String key = keyFor(url);
+            File tempFile = new File(directory, key + "." + Thread.currentThread().getId() + TEMP_FILE_SUFFIX);
+
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                outputStream.write(data);
+            } catch (IOException e) {
+                tempFile.delete();
+                return;
+            }
+
+            synchronized (this) {
+                if (!tempFile.renameTo(new File(directory, key))) {
+                    tempFile.delete();
+                    return;
+                }
+
+                Long previousSize = entries.put(key, (long) data.length);
+                if (previousSize != null) {
+                    size -= previousSize;
+                }
+                size += data.length;
+                appendJournalLine('P', key, data.length);
+                trimToSize();
+            }
+        }
+
+        private synchronized void setMaxSize(long maxSize) {
+            if (this.maxSize != maxSize) {
+                this.maxSize = maxSize;
+                trimToSize();
+            }
+        }
+
+        private synchronized void remove(@NonNull String key) {
+            Long entrySize = entries.remove(key);
+            if (entrySize != null) {
+                size -= entrySize;
+                new File(directory, key).delete();
+                appendJournalLine('D', key, 0);
+            }
+        }
+
+        private void trimToSize() {
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                Map.Entry<String, Long> eldestEntry = iterator.next();
+                iterator.remove();
+                size -= eldestEntry.getValue();
+                new File(directory, eldestEntry.getKey()).delete();
+                appendJournalLine('D', eldestEntry.getKey(), 0);
+            }
+        }
+
+        private void readJournal() {
+            File journalFile = new File(directory, JOURNAL_FILE_NAME);
+            File journalTempFile = new File(directory, JOURNAL_TEMP_FILE_NAME);
+
+            // the process may have died while the journal was being rebuilt
+            if (journalTempFile.exists()) {
+                if (journalFile.exists()) {
+                    journalTempFile.delete();
+                } else {
+                    journalTempFile.renameTo(journalFile);
+                }
+            }
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), "UTF-8"))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(" ");
+                    if (parts.length < 2) {
+                        // truncated last line
+                        continue;
+                    }
+
+                    switch (parts[0]) {
+                        case "P":
+                            if (parts.length == 3) {
+                                Long previousSize = entries.put(parts[1], Long.parseLong(parts[2]));
+                                if (previousSize != null) {
+                                    size -= previousSize;
+                                }
+                                size += entries.get(parts[1]);
+                            }
+                            break;
+
+                        case "R":
+                            entries.get(parts[1]);
+                            break;
+
+                        case "D":
+                            Long removedSize = entries.remove(parts[1]);
+                            if (removedSize != null) {
+                                size -= removedSize;
+                            }
+                            break;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // missing or corrupted journal, the entries read so far are checked against the files below
+            }
+
+            // drop entries whose file is missing or was not completely written
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                if (new File(directory, entry.getKey()).length() != entry.getValue()) {
+                    iterator.remove();
+                    size -= entry.getValue();
+                }
+            }
+        }
+
+        private void deleteUnreferencedFiles() {
+            File[] files = directory.listFiles();
+            if (files == null) {
+                return;
+            }
+
+            for (File file : files) {
+                String name = file.getName();
+                if (!name.equals(JOURNAL_FILE_NAME) && !entries.containsKey(name)) {
+                    file.delete();
+                }
+            }
+        }
+
+        private void rebuildJournal() {
+            closeJournal();
+
+            File journalFile = new File(directory, JOURNAL_FILE_NAME);
+            File journalTempFile = new File(directory, JOURNAL_TEMP_FILE_NAME);
+
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalTempFile), "UTF-8"))) {
+                for (Map.Entry<String, Long> entry : entries.entrySet()) {
+                    writer.write("P " + entry.getKey() + " " + entry.getValue() + "\n");
+                }
+            } catch (IOException e) {
+                journalTempFile.delete();
+                return;
+            }
+
+            if (journalTempFile.renameTo(journalFile)) {
+                redundantJournalLineCount = 0;
+            }
+
+            try {
+                journalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), "UTF-8"));
+            } catch (IOException e) {
+                journalWriter = null;
+            }
+        }
+
+        private void appendJournalLine(char operation, @NonNull String key, long entrySize) {
+            if (journalWriter == null) {
+                return;
+            }
+
+            try {
+                journalWriter.write(operation == 'P' ? operation + " " + key + " " + entrySize + "\n" : operation + " " + key + "\n");
+                journalWriter.flush();
+            } catch (IOException e) {
+                closeJournal();
+                return;
+            }
+
+            if (operation != 'P' && ++redundantJournalLineCount >= MAX_REDUNDANT_JOURNAL_LINES
+                    && redundantJournalLineCount >= entries.size()) {
+                rebuildJournal();
+            }
+        }
+
+        private void closeJournal() {
+            if (journalWriter != null) {
+                try {
+                    journalWriter.close();
+                } catch (IOException ignored) {
+                }
+                journalWriter = null;
+            }
+        }
+
+        @NonNull
+        private static byte[] readFile(@NonNull File file) throws IOException {
+            byte[] data = new byte[(int) file.length()];
+            try (InputStream inputStream = new FileInputStream(file)) {
+                int offset = 0;
+                while (offset < data.length) {
+                    int readCount = inputStream.read(data, offset, data.length - offset);
+                    if (readCount == -1) {
+                        throw new IOException("Unexpected end of file " + file);
+                    }
+                    offset += readCount;
+                }
+            }
+            return data;
+        }
+
+        @NonNull
+        private static String keyFor(@NonNull String url) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"));
+                StringBuilder key = new StringBuilder(digest.length * 2);
+                for (byte b : digest) {
+                    key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+                }
+                return key.toString();
+            } catch (Exception e) {
+                return Integer.toHexString(url.hashCode());
+            }
+        }
+    }
+
+    @Nullable
+    private static Bitmap scaledBitmapFromUrl(@Nullable String url, int targetWidth, int targetHeight, @NonNull NativeAssetsLoader loader) {
+        NativeImageCache cache = nativeImageCache;
+        String cacheKey = null;
+        if (cache != null && url != null) {
+            cacheKey = NativeImageCache.keyFor(url, targetWidth, targetHeight);
+            Bitmap cachedBitmap = cache.get(cacheKey);
+            if (cachedBitmap != null) {
+                return cachedBitmap;
+            }
+        }
+
+        Bitmap result = null;
+        try {
+            byte[] imageData = loadImageData(url, loader);
+            result = decodeScaledBitmap(imageData, targetWidth, targetHeight);
+            if (url != null) {
+                updateNativeAssetDiskCache(url, imageData, result != null);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        if (result != null && cacheKey != null) {
+            cache.put(cacheKey, result);
+        }
+        return result;
+    }
+
+    @NonNull
+    private static byte[] loadImageData(@Nullable String url, @NonNull NativeAssetsLoader loader) throws IOException {
+        NativeAssetDiskCache diskCache = url != null ? getNativeAssetDiskCache() : null;
+        if (diskCache != null) {
+            byte[] cachedImageData = diskCache.get(url);
+            if (cachedImageData != null) {
+                return cachedImageData;
+            }
+        }
+
+        // stored in the disk cache by the caller, once decoded
+        return downloadImageData(url, loader);
+    }
+
+    @NonNull
+    private static byte[] downloadImageData(@Nullable String url, @NonNull NativeAssetsLoader loader) throws IOException {
+        long remainingTime = loader.getRemainingTime();
+        if (remainingTime <= 0) {
+            throw new SocketTimeoutException("Native ad load deadline reached before downloading " + url);
+        }
+
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout((int) Math.min(Integer.MAX_VALUE, remainingTime));
+        connection.setReadTimeout((int) Math.min(Integer.MAX_VALUE, remainingTime));
+
+        if (!loader.registerConnection(connection)) {
+            throw new InterruptedIOException("Native ad load finished before downloading " + url);
+        }
+
+        try (InputStream inputStream = connection.getInputStream()) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int readCount;
+            while ((readCount = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, readCount);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            loader.unregisterConnection(connection);
+        }
+    }
+
+    /**
+     * Decode the given image data to a bitmap fitting in the target size, without allocating the full
+     * resolution bitmap: a first pass only reads the image bounds, then the image is subsampled by the
+     * largest power of two keeping it bigger than the target size, and the decoder applies the remaining
+     * scaling itself. The peak memory used is therefore close to the size of the final bitmap.
+     *
+     * @param imageData The encoded image.
+     * @param targetWidth The width the image should fit in, the image is not scaled if not strictly positive.
+     * @param targetHeight The height the image should fit in, the image is not scaled if not strictly positive.
+     * @return the decoded bitmap, or null if the image data cannot be decoded.
+     */
+    @Nullable
+    private static Bitmap decodeScaledBitmap(@NonNull byte[] imageData, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return BitmapFactory.decodeByteArray(imageData, 0, imageData.length);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
+
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        double resizeRatio = Math.min((double) targetWidth / options.outWidth, (double) targetHeight / options.outHeight);
+        int scaledWidth = Math.max(1, (int) (options.outWidth * resizeRatio));
+        int scaledHeight = Math.max(1, (int) (options.outHeight * resizeRatio));
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= scaledWidth && options.outHeight / (sampleSize * 2) >= scaledHeight) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+
+        // let the decoder scale the subsampled image to the final size in the same pass
+        int sampledWidth = options.outWidth / sampleSize;
+        if (sampledWidth != scaledWidth) {
+            options.inScaled = true;
+            options.inDensity = sampledWidth;
+            options.inTargetDensity = scaledWidth;
+        }
+
+        Bitmap result = BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
+        if (result != null) {
+            // the density is only used to scale while decoding, the bitmap must not be scaled again when drawn
+            result.setDensity(Bitmap.DENSITY_NONE);
         }
         return result;
     }
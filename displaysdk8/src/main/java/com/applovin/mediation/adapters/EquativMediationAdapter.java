@@ -1,6 +1,10 @@
 package com.applovin.mediation.adapters;
 
 import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Color;
@@ -8,11 +12,19 @@ import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.LruCache;
 import android.view.View;
 import android.view.ViewGroup;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
@@ -42,9 +54,50 @@ import com.equativ.displaysdk.util.SASConfiguration;
 import com.equativ.displaysdk.util.SASLibraryInfo;
 import com.equativ.displaysdk.util.SASSecondaryImplementationInfo;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class is an implementation of all AppLovin mediation adapters compatible with Equativ Display SDK v8.0+.
@@ -55,6 +108,182 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
 
     private static final String ADAPTER_VERSION = "2.1";
 
+    private static final int DEFAULT_NATIVE_ASSET_POOL_SIZE = 2;
+    private static final int DEFAULT_NATIVE_ASSET_QUEUE_LIMIT = 32;
+    private static final long NATIVE_ASSET_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    // Executor shared by all adapter instances to download and decode native ad assets
+    @Nullable
+    private static ThreadPoolExecutor nativeAssetExecutor = null;
+
+    private static int nativeAssetPoolSize = DEFAULT_NATIVE_ASSET_POOL_SIZE;
+
+    private static int nativeAssetQueueLimit = DEFAULT_NATIVE_ASSET_QUEUE_LIMIT;
+
+    @NonNull
+    private static final AtomicLong nativeAssetRejectedTaskCount = new AtomicLong();
+
+    @Nullable
+    private static volatile NativeAssetTimingListener nativeAssetTimingListener = null;
+
+    // AppLovin MAX does not pass its load timeout to the adapters, so the native ad load deadline is a configured
+    // duration, counted from the request
+    private static final long DEFAULT_NATIVE_ASSET_LOAD_TIMEOUT = 10000;
+
+    private static volatile long nativeAssetLoadTimeout = DEFAULT_NATIVE_ASSET_LOAD_TIMEOUT;
+
+    @NonNull
+    private static volatile NativeAssetTimeoutPolicy nativeAssetTimeoutPolicy = NativeAssetTimeoutPolicy.DELIVER_WITHOUT_MISSING_ASSETS;
+
+    private static final int DEFAULT_NATIVE_IMAGE_CACHE_SIZE = (int) Math.min(Runtime.getRuntime().maxMemory() / 32, 8 * 1024 * 1024);
+
+    // Cache of decoded native ad images shared by all adapter instances, null if disabled
+    @Nullable
+    private static volatile NativeImageCache nativeImageCache = new NativeImageCache(DEFAULT_NATIVE_IMAGE_CACHE_SIZE);
+
+    private static final long DEFAULT_NATIVE_ASSET_DISK_CACHE_SIZE = 20 * 1024 * 1024;
+
+    private static volatile long nativeAssetDiskCacheMaxSize = DEFAULT_NATIVE_ASSET_DISK_CACHE_SIZE;
+
+    @Nullable
+    private static volatile Context nativeAssetDiskCacheContext = null;
+
+    // Guards the opening of the disk cache, without contending with the other class-level locks
+    @NonNull
+    private static final Object nativeAssetDiskCacheLock = new Object();
+
+    // Disk cache of native ad images shared by all adapter instances, opened on first use
+    @Nullable
+    private static NativeAssetDiskCache nativeAssetDiskCache = null;
+
+    private static volatile int creativeMaxConnectionsPerHost = 0;
+
+    private static final long DEFAULT_CREATIVE_KEEP_ALIVE_DURATION = 5 * 60 * 1000;
+
+    private static volatile long creativeKeepAliveDuration = DEFAULT_CREATIVE_KEEP_ALIVE_DURATION;
+
+    @NonNull
+    private static final CreativeHttpClient creativeHttpClient = new CreativeHttpClient();
+
+    private static volatile int interstitialPreloadPoolSize = 0;
+
+    private static volatile long interstitialPreloadTimeToLive = 0;
+
+    @NonNull
+    private static final InterstitialPreloadPool interstitialPreloadPool = new InterstitialPreloadPool();
+
+    private static volatile int nativeAdBatchSize = 0;
+
+    private static volatile long nativeAdBatchTimeToLive = 0;
+
+    private static volatile boolean nativeAdPrefetchEnabled = false;
+
+    private static volatile boolean nativeProgressiveDeliveryEnabled = false;
+
+    private static volatile boolean nativeCoverLazyDecodeEnabled = false;
+
+    private static volatile long nativeBitmapPoolMaxSize = 0;
+
+    @NonNull
+    private static final NativeBitmapPool nativeBitmapPool = new NativeBitmapPool();
+
+    @NonNull
+    private static volatile NativeImageFormat nativeIconImageFormat = NativeImageFormat.ARGB_8888;
+
+    @NonNull
+    private static volatile NativeImageFormat nativeCoverImageFormat = NativeImageFormat.ARGB_8888;
+
+    // heap bytes and count of the delivered native ad images, by image kind and format
+    private static final AtomicLongArray nativeImageHeapBytes = new AtomicLongArray(NativeImageKind.values().length * NativeImageFormat.values().length);
+
+    private static final AtomicLongArray nativeImageImpressionCount = new AtomicLongArray(NativeImageKind.values().length * NativeImageFormat.values().length);
+
+    @NonNull
+    private static final NativeAdQueue nativeAdQueue = new NativeAdQueue();
+
+    private static final int DEFAULT_BANNER_VIEW_POOL_SIZE = 0;
+
+    private static volatile int bannerViewPoolSize = DEFAULT_BANNER_VIEW_POOL_SIZE;
+
+    @NonNull
+    private static final BannerViewPool bannerViewPool = new BannerViewPool();
+
+    private static final String FORMAT_BANNER = "banner";
+    private static final String FORMAT_INTERSTITIAL = "interstitial";
+    private static final String FORMAT_NATIVE = "native";
+
+    // Load latency histograms by format and placement, shared by all adapter instances
+    @NonNull
+    private static final ConcurrentHashMap<String, LoadMetrics> loadMetrics = new ConcurrentHashMap<>();
+
+    @NonNull
+    private static final NoFillBackoff noFillBackoff = new NoFillBackoff();
+
+    private static volatile double circuitBreakerErrorRateThreshold = 0;
+
+    private static volatile int circuitBreakerMinimumRequestCount = 1;
+
+    private static volatile long circuitBreakerBucketDuration = 1000;
+
+    private static volatile long circuitBreakerOpenDuration = 0;
+
+    private static volatile int circuitBreakerProbeRequestCount = 1;
+
+    @Nullable
+    private static volatile CircuitBreakerListener circuitBreakerListener = null;
+
+    @NonNull
+    private static final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    // Requests skipped by an open circuit report a no-fill, so that AppLovin MAX moves on without counting an adapter error
+    @NonNull
+    private static final MaxAdapterError CIRCUIT_OPEN_ERROR = new MaxAdapterError(MaxAdapterError.ERROR_CODE_NO_FILL, "Equativ circuit breaker open for this placement");
+
+    private static volatile int placementRaceConcurrency = 1;
+
+    private static final int ADAPTIVE_LOAD_TIMEOUT_MIN_SAMPLE_COUNT = 20;
+
+    // growth of the timeout, as a multiple of the last one that expired, when the percentile falls among the timed out
+    // loads, whose actual latency is unknown
+    private static final int ADAPTIVE_LOAD_TIMEOUT_GROWTH_FACTOR = 2;
+
+    private static volatile double adaptiveLoadTimeoutPercentile = 0;
+
+    private static volatile long adaptiveLoadTimeoutMargin = 0;
+
+    private static volatile long adaptiveLoadTimeoutMin = 0;
+
+    private static volatile long adaptiveLoadTimeoutMax = 0;
+
+    @NonNull
+    private static final AtomicLong adaptiveLoadTimeoutCount = new AtomicLong();
+
+    // Whether SASConfiguration was configured in this process
+    @NonNull
+    private static final AtomicBoolean sdkConfigured = new AtomicBoolean(false);
+
+    // Serializes the SDK configuration, so that concurrent first calls never configure it at the same time
+    @NonNull
+    private static final Object sdkConfigurationLock = new Object();
+
+    @NonNull
+    private static final MemoryTrimRegistry memoryTrimRegistry = new MemoryTrimRegistry();
+
+    @NonNull
+    private static final AtomicBoolean sdkWarmUpStarted = new AtomicBoolean(false);
+
+    private static volatile boolean webViewPrewarmEnabled = false;
+
+    private static volatile boolean liveObjectTrackingEnabled = false;
+
+    private static final int LIVE_OBJECTS_MIN_PRUNE_SIZE = 64;
+
+    // SDK objects created by the adapter while the live object tracking is enabled, guarded by the list itself
+    @NonNull
+    private static final List<WeakReference<Object>> liveObjects = new ArrayList<>();
+
+    private static int liveObjectsPruneSize = LIVE_OBJECTS_MIN_PRUNE_SIZE;
+
     @Nullable
     private SASBannerView bannerView = null;
 
@@ -64,9 +293,22 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
     @Nullable
     private SASNativeAdView nativeAdView = null;
 
+    @Nullable
+    private PlacementRace<SASBannerView> bannerRace = null;
+
+    @Nullable
+    private PlacementRace<SASInterstitialManager> interstitialRace = null;
+
+    @Nullable
+    private PlacementRace<SASNativeAdView> nativeAdRace = null;
+
     @Nullable
     private EquativMaxNativeAd equativMaxNativeAd = null;
 
+    // set from the SDK callback thread, cancelled from the main thread
+    @Nullable
+    private volatile NativeAssetsLoader nativeAssetsLoader = null;
+
     @NonNull
     private final Handler mainLooperHandler = new Handler(Looper.getMainLooper());
 
@@ -81,6 +323,11 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
                 AppLovinSdk.VERSION,
                 ADAPTER_VERSION
         ));
+
+        if (activity != null) {
+            startSdkWarmUp(activity.getApplicationContext());
+        }
+
         onCompletionListener.onCompletion(InitializationStatus.DOES_NOT_APPLY, null);
     }
 
@@ -96,8 +343,25 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
 
     @Override
     public void onDestroy() {
+        if (bannerRace != null) {
+            bannerRace.cancel();
+            bannerRace = null;
+        }
+
+        if (interstitialRace != null) {
+            interstitialRace.cancel();
+            interstitialRace = null;
+        }
+
+        if (nativeAdRace != null) {
+            nativeAdRace.cancel();
+            nativeAdRace = null;
+        }
+
         if (bannerView != null) {
-            bannerView.onDestroy();
+            // banner views are kept for reuse by the next adapter instances when the pool is enabled
+            SASBannerView releasedBannerView = bannerView;
+            mainLooperHandler.post(() -> releaseBannerView(releasedBannerView));
             bannerView = null;
         }
 
@@ -106,12 +370,137 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
             interstitialManager = null;
         }
 
-        if (nativeAdView != null) {
-            nativeAdView.onDestroy();
+        if (nativeAssetsLoader != null) {
+            nativeAssetsLoader.cancel();
+            nativeAssetsLoader = null;
+        }
+
+        if (equativMaxNativeAd != null || nativeAdView != null) {
+            // the images of the native ad may still be drawn by AppLovin MAX until the main thread is done with them
+            EquativMaxNativeAd releasedNativeAd = equativMaxNativeAd;
+            SASNativeAdView releasedNativeAdView = nativeAdView;
+            mainLooperHandler.post(() -> destroyNativeAd(releasedNativeAd, releasedNativeAdView));
+            equativMaxNativeAd = null;
             nativeAdView = null;
         }
     }
 
+    /// Live object tracking
+
+    /**
+     * Enable the tracking of the Equativ Display SDK objects created by the adapter, to find leaks in debug builds:
+     * once their ads are destroyed and the garbage collector has run, these objects should no longer be live.
+     * Only the objects created while the tracking is enabled are counted. It should stay disabled in release builds.
+     *
+     * @param enabled true to track the SDK objects created by the adapter (disabled by default).
+     */
+    public static void setLiveObjectTrackingEnabled(boolean enabled) {
+        liveObjectTrackingEnabled = enabled;
+    }
+
+    /**
+     * @return the number of tracked SDK objects that are not garbage collected yet, by class name.
+     */
+    @NonNull
+    public static Map<String, Integer> getLiveObjectCounts() {
+        Map<String, Integer> liveObjectCounts = new HashMap<>();
+        synchronized (liveObjects) {
+            pruneLiveObjects();
+            for (WeakReference<Object> liveObject : liveObjects) {
+                Object object = liveObject.get();
+                if (object != null) {
+                    String className = object.getClass().getSimpleName();
+                    Integer count = liveObjectCounts.get(className);
+                    liveObjectCounts.put(className, count != null ? count + 1 : 1);
+                }
+            }
+        }
+        return liveObjectCounts;
+    }
+
+    /**
+     * Track the given SDK object if the live object tracking is enabled.
+     *
+     * @return the given object.
+     */
+    @NonNull
+    private static <T> T trackLiveObject(@NonNull T object) {
+        if (liveObjectTrackingEnabled) {
+            synchronized (liveObjects) {
+                // garbage collected objects are pruned as the list grows
+                if (liveObjects.size() >= liveObjectsPruneSize) {
+                    pruneLiveObjects();
+                    liveObjectsPruneSize = Math.max(LIVE_OBJECTS_MIN_PRUNE_SIZE, liveObjects.size() * 2);
+                }
+                liveObjects.add(new WeakReference<>(object));
+            }
+        }
+        return object;
+    }
+
+    private static void pruneLiveObjects() {
+        Iterator<WeakReference<Object>> iterator = liveObjects.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /// SDK configuration
+
+    /**
+     * Enable the warm up of the WebView engine in the background when the adapter is initialized, so that
+     * the first banner or interstitial does not pay for it. Must be called before AppLovin MAX initializes the adapter.
+     *
+     * @param enabled true to warm up the WebView engine at initialization (disabled by default).
+     */
+    public static void setWebViewPrewarmEnabled(boolean enabled) {
+        webViewPrewarmEnabled = enabled;
+    }
+
+    /**
+     * Configure the Equativ Display SDK if it was not already configured in this process. The check is lock-free
+     * once configured, the configuration itself runs under a lock so that it happens once.
+     */
+    private static void configureSdkIfNeeded(@NonNull Context context) {
+        if (!sdkConfigured.get()) {
+            synchronized (sdkConfigurationLock) {
+                if (!sdkConfigured.get()) {
+                    SASConfiguration.INSTANCE.configure(context);
+                    sdkConfigured.set(true);
+                }
+            }
+        }
+        memoryTrimRegistry.registerIfNeeded(context);
+    }
+
+    /**
+     * Configure the SDK and optionally warm up the WebView engine on a background thread, once per process.
+     */
+    private static void startSdkWarmUp(@NonNull Context applicationContext) {
+        if (!sdkWarmUpStarted.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread warmUpThread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                configureSdkIfNeeded(applicationContext);
+
+                if (webViewPrewarmEnabled) {
+                    // loads the WebView provider without creating any view
+                    WebSettings.getDefaultUserAgent(applicationContext);
+                }
+            } catch (Exception e) {
+                // the SDK will be configured again by the first ad request
+                e.printStackTrace();
+            }
+        }, "EquativSdkWarmUp");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
     /**
      * Convert the raw placement string to a SASAdPlacement model object.
      * The raw placement string is the value set in PlacementId section of your custom network
@@ -123,338 +512,4934 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
      * @param rawAdPlacement The raw placement string that will be used to create SASAdPlacement object.
      * @return a SASAdPlacement instance.
      */
-    private SASAdPlacement convertToAdPlacement(@Nullable String rawAdPlacement) {
-        // Quick fail if the given string is null or empty.
-        if (rawAdPlacement == null || rawAdPlacement.isEmpty()) {
-            return null;
+    private SASAdPlacement convertToAdPlacement(@Nullable String rawAdPlacement) {
+        // Quick fail if the given string is null or empty.
+        if (rawAdPlacement == null || rawAdPlacement.isEmpty()) {
+            return null;
+        }
+
+        String[] subStrings = rawAdPlacement.split("/");
+
+        int siteId;
+        int pageId;
+        int formatId;
+        String targeting = null;
+
+        try {
+            siteId = Integer.parseInt(subStrings[0].trim());
+            pageId = Integer.parseInt(subStrings[1].trim());
+            formatId = Integer.parseInt(subStrings[2].trim());
+
+            if (subStrings.length > 3) {
+                targeting = subStrings[3];
+            }
+
+        } catch (Exception ignored) {
+            return null;
+        }
+
+        return new SASAdPlacement(siteId, pageId, formatId, targeting);
+    }
+
+    /**
+     * @return a key identifying the given placement, to index the per-placement state of the adapter. A placement
+     * without targeting is keyed with an empty targeting.
+     */
+    @NonNull
+    private static String placementKey(@NonNull SASAdPlacement adPlacement) {
+        String targeting = adPlacement.getKeywordTargeting();
+        return adPlacement.getSiteId() + "/" + adPlacement.getPageId() + "/" + adPlacement.getFormatId() + "/" + (targeting != null ? targeting : "");
+    }
+
+    /// No-fill backoff
+
+    /**
+     * Enable the no-fill backoff, shared by all adapter instances. Once a placement returned the given number of
+     * consecutive no-fills, its requests fail immediately with {@link MaxAdapterError#NO_FILL} during a backoff
+     * window, so that AppLovin MAX moves on to the next network without waiting for a network round trip.
+     * The window doubles with each additional no-fill, up to the maximum backoff, and is reset by the first fill.
+     *
+     * @param noFillThreshold The number of consecutive no-fills starting the backoff, 0 to disable it (default).
+     * @param baseBackoff The duration of the first backoff window, in milliseconds.
+     * @param maxBackoff The maximum duration of a backoff window, in milliseconds.
+     * @param jitterRatio The ratio of each window randomly removed, between 0 and 1, to spread the retries of all users.
+     */
+    public static void setNoFillBackoffConfiguration(int noFillThreshold, long baseBackoff, long maxBackoff, double jitterRatio) {
+        noFillBackoff.configure(noFillThreshold, baseBackoff, maxBackoff, jitterRatio);
+    }
+
+    /**
+     * @return the number of requests failed immediately because their placement was in a no-fill backoff window.
+     */
+    public static long getNoFillBackoffSkippedRequestCount() {
+        return noFillBackoff.skippedRequestCount.get();
+    }
+
+    /**
+     * @return the number of no-fill backoff windows started.
+     */
+    public static long getNoFillBackoffWindowCount() {
+        return noFillBackoff.windowCount.get();
+    }
+
+    /**
+     * Check whether a request for the given placement should fail immediately, because of the no-fill backoff
+     * or of the circuit breaker.
+     *
+     * @return the error to fail the request with, or null if the request can be sent.
+     */
+    @Nullable
+    private static MaxAdapterError getFastFailError(@NonNull String placement) {
+        if (noFillBackoff.shouldSkip(placement)) {
+            return MaxAdapterError.NO_FILL;
+        }
+
+        if (!allowCircuitRequest(placement)) {
+            return CIRCUIT_OPEN_ERROR;
+        }
+        return null;
+    }
+
+    /**
+     * Check whether background requests for the given placement, such as pool refills, should not be sent. Unlike
+     * {@link #getFastFailError(String)}, this counts no failed request and takes no probe of a half-open circuit:
+     * each load actually sent takes its own probe through {@link #allowCircuitRequest(String)}.
+     *
+     * @return true if the placement is in a no-fill backoff window or its circuit lets no request through.
+     */
+    private static boolean isBlocked(@NonNull String placement) {
+        if (noFillBackoff.isBackingOff(placement)) {
+            return true;
+        }
+
+        CircuitBreaker circuitBreaker = getCircuitBreaker(placement);
+        return circuitBreaker != null && circuitBreaker.isBlocked();
+    }
+
+    /**
+     * @return true if the circuit breaker of the placement lets a request through, taking a probe if it is half-open.
+     */
+    private static boolean allowCircuitRequest(@NonNull String placement) {
+        CircuitBreaker circuitBreaker = getCircuitBreaker(placement);
+        return circuitBreaker == null || circuitBreaker.allowRequest();
+    }
+
+    /**
+     * Record the result of an SDK load for a placement.
+     */
+    private static void recordLoadSuccess(@NonNull String placement) {
+        noFillBackoff.onFill(placement);
+
+        CircuitBreaker circuitBreaker = getCircuitBreaker(placement);
+        if (circuitBreaker != null) {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private static void recordLoadFailure(@NonNull String placement, @NonNull SASException e) {
+        CircuitBreaker circuitBreaker = getCircuitBreaker(placement);
+
+        if (e.getType() == SASException.Type.NO_AD) {
+            noFillBackoff.onNoFill(placement);
+
+            // a no-fill is a valid answer of the ad server
+            if (circuitBreaker != null) {
+                circuitBreaker.onSuccess();
+            }
+        } else if (circuitBreaker != null) {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    /**
+     * Per-placement count of consecutive no-fills and exponential backoff window.
+     */
+    private static class NoFillBackoff {
+
+        private static class PlacementState {
+
+            private int consecutiveNoFillCount = 0;
+
+            // elapsed realtime at which the backoff window ends
+            private long backoffEndTime = 0;
+        }
+
+        @NonNull
+        private final ConcurrentHashMap<String, PlacementState> placementStates = new ConcurrentHashMap<>();
+
+        @NonNull
+        private final AtomicLong skippedRequestCount = new AtomicLong();
+
+        @NonNull
+        private final AtomicLong windowCount = new AtomicLong();
+
+        private volatile int noFillThreshold = 0;
+
+        private volatile long baseBackoff = 0;
+
+        private volatile long maxBackoff = 0;
+
+        private volatile double jitterRatio = 0;
+
+        private void configure(int noFillThreshold, long baseBackoff, long maxBackoff, double jitterRatio) {
+            this.baseBackoff = Math.max(0, baseBackoff);
+            this.maxBackoff = Math.max(this.baseBackoff, maxBackoff);
+            this.jitterRatio = Math.max(0, Math.min(1, jitterRatio));
+            this.noFillThreshold = Math.max(0, noFillThreshold);
+            placementStates.clear();
+        }
+
+        /**
+         * @return true if the placement is in a backoff window, in which case the request should fail immediately.
+         */
+        private boolean shouldSkip(@NonNull String placement) {
+            boolean skip = isBackingOff(placement);
+            if (skip) {
+                skippedRequestCount.incrementAndGet();
+            }
+            return skip;
+        }
+
+        /**
+         * @return true if the placement is in a backoff window, without counting a skipped request.
+         */
+        private boolean isBackingOff(@NonNull String placement) {
+            PlacementState state = placementStates.get(placement);
+            if (state == null) {
+                return false;
+            }
+
+            synchronized (state) {
+                return SystemClock.elapsedRealtime() < state.backoffEndTime;
+            }
+        }
+
+        private void onNoFill(@NonNull String placement) {
+            int threshold = noFillThreshold;
+            if (threshold <= 0) {
+                return;
+            }
+
+            PlacementState state = placementStates.get(placement);
+            if (state == null) {
+                PlacementState newState = new PlacementState();
+                state = placementStates.putIfAbsent(placement, newState);
+                if (state == null) {
+                    state = newState;
+                }
+            }
+
+            synchronized (state) {
+                state.consecutiveNoFillCount++;
+                if (state.consecutiveNoFillCount >= threshold) {
+                    int exponent = Math.min(state.consecutiveNoFillCount - threshold, 30);
+                    long backoff = Math.min(maxBackoff, baseBackoff << exponent);
+                    backoff -= (long) (backoff * jitterRatio * ThreadLocalRandom.current().nextDouble());
+                    state.backoffEndTime = SystemClock.elapsedRealtime() + backoff;
+                    windowCount.incrementAndGet();
+                }
+            }
+        }
+
+        private void onFill(@NonNull String placement) {
+            placementStates.remove(placement);
+        }
+    }
+
+    /// Circuit breaker
+
+    /**
+     * State of the circuit breaker of a placement.
+     */
+    public enum CircuitState {
+
+        /**
+         * Requests are sent to the Equativ ad server.
+         */
+        CLOSED,
+
+        /**
+         * Too many requests failed recently: requests fail immediately.
+         */
+        OPEN,
+
+        /**
+         * A limited number of probe requests are sent to check whether the placement recovered.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Listener notified of the state transitions of the placements circuit breakers.
+     * It is called from the thread reporting the request result that triggered the transition.
+     */
+    public interface CircuitBreakerListener {
+
+        /**
+         * @param placement The placement, formatted as site id/page id/format id/targeting.
+         * @param previousState The state of the circuit breaker before the transition.
+         * @param newState The state of the circuit breaker after the transition.
+         */
+        void onCircuitStateChanged(@NonNull String placement, @NonNull CircuitState previousState, @NonNull CircuitState newState);
+    }
+
+    /**
+     * Enable the per-placement circuit breaker, shared by all adapter instances. When the ratio of requests of a
+     * placement failing with a timeout or an SDK error over the rolling window reaches the threshold, the circuit
+     * opens and the requests of this placement fail immediately. Once the open duration is elapsed, a few probe
+     * requests are let through: the circuit closes on the first success, and opens again on the first failure.
+     * No-fills are not considered as failures.
+     *
+     * @param errorRateThreshold The ratio of failed requests opening the circuit, between 0 and 1, 0 to disable the circuit breaker (default).
+     * @param minimumRequestCount The minimum number of requests in the rolling window before the circuit can open.
+     * @param windowDuration The duration of the rolling window, in milliseconds.
+     * @param openDuration The time the circuit stays open before letting probe requests through, in milliseconds.
+     * @param probeRequestCount The number of probe requests let through while the circuit is half-open.
+     */
+    public static void setCircuitBreakerConfiguration(double errorRateThreshold, int minimumRequestCount, long windowDuration, long openDuration, int probeRequestCount) {
+        circuitBreakerErrorRateThreshold = Math.max(0, Math.min(1, errorRateThreshold));
+        circuitBreakerMinimumRequestCount = Math.max(1, minimumRequestCount);
+        circuitBreakerBucketDuration = Math.max(1, windowDuration / CircuitBreaker.BUCKET_COUNT);
+        circuitBreakerOpenDuration = Math.max(0, openDuration);
+        circuitBreakerProbeRequestCount = Math.max(1, probeRequestCount);
+        circuitBreakers.clear();
+    }
+
+    /**
+     * Set the listener notified of the circuit breakers state transitions.
+     *
+     * @param listener The listener to notify, or null to stop the notifications.
+     */
+    public static void setCircuitBreakerListener(@Nullable CircuitBreakerListener listener) {
+        circuitBreakerListener = listener;
+    }
+
+    /**
+     * @param placement The placement, formatted as site id/page id/format id[/targeting].
+     * @return the current state of the circuit breaker of this placement.
+     */
+    @NonNull
+    public static CircuitState getCircuitState(@NonNull String placement) {
+        // placements without targeting are keyed with an empty targeting, see placementKey
+        String key = placement.split("/", -1).length == 3 ? placement + "/" : placement;
+        CircuitBreaker circuitBreaker = circuitBreakers.get(key);
+        return circuitBreaker != null ? circuitBreaker.state.get() : CircuitState.CLOSED;
+    }
+
+    @Nullable
+    private static CircuitBreaker getCircuitBreaker(@NonNull String placement) {
+        if (circuitBreakerErrorRateThreshold <= 0) {
+            return null;
+        }
+
+        CircuitBreaker circuitBreaker = circuitBreakers.get(placement);
+        if (circuitBreaker == null) {
+            CircuitBreaker newCircuitBreaker = new CircuitBreaker(placement);
+            circuitBreaker = circuitBreakers.putIfAbsent(placement, newCircuitBreaker);
+            if (circuitBreaker == null) {
+                circuitBreaker = newCircuitBreaker;
+            }
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Lock-free circuit breaker of one placement, counting request results in a rolling window of time buckets.
+     */
+    private static class CircuitBreaker {
+
+        private static final int BUCKET_COUNT = 10;
+
+        @NonNull
+        private final String placement;
+
+        @NonNull
+        private final AtomicReference<CircuitState> state = new AtomicReference<>(CircuitState.CLOSED);
+
+        // elapsed realtime of the last transition to OPEN or HALF_OPEN
+        @NonNull
+        private final AtomicLong stateChangeTime = new AtomicLong();
+
+        @NonNull
+        private final AtomicInteger remainingProbeCount = new AtomicInteger();
+
+        // index of the time bucket each slot of the rolling window currently counts
+        @NonNull
+        private final AtomicLongArray bucketIndexes = new AtomicLongArray(BUCKET_COUNT);
+
+        @NonNull
+        private final AtomicLongArray successCounts = new AtomicLongArray(BUCKET_COUNT);
+
+        @NonNull
+        private final AtomicLongArray failureCounts = new AtomicLongArray(BUCKET_COUNT);
+
+        public CircuitBreaker(@NonNull String placement) {
+            this.placement = placement;
+        }
+
+        /**
+         * @return true if a request can be sent for this placement.
+         */
+        private boolean allowRequest() {
+            long now = SystemClock.elapsedRealtime();
+            CircuitState currentState = state.get();
+
+            if (currentState == CircuitState.OPEN) {
+                if (now - stateChangeTime.get() < circuitBreakerOpenDuration) {
+                    return false;
+                }
+                startProbing(CircuitState.OPEN, now);
+            } else if (currentState == CircuitState.HALF_OPEN && now - stateChangeTime.get() >= circuitBreakerOpenDuration) {
+                // probes whose result never came back must not keep the circuit half-open forever
+                startProbing(CircuitState.HALF_OPEN, now);
+            }
+
+            if (state.get() != CircuitState.HALF_OPEN) {
+                return true;
+            }
+
+            int probeCount;
+            do {
+                probeCount = remainingProbeCount.get();
+                if (probeCount <= 0) {
+                    return false;
+                }
+            } while (!remainingProbeCount.compareAndSet(probeCount, probeCount - 1));
+            return true;
+        }
+
+        /**
+         * @return true if {@link #allowRequest()} would currently refuse a request, without changing the state.
+         */
+        private boolean isBlocked() {
+            CircuitState currentState = state.get();
+            if (currentState == CircuitState.CLOSED) {
+                return false;
+            }
+
+            boolean openDurationElapsed = SystemClock.elapsedRealtime() - stateChangeTime.get() >= circuitBreakerOpenDuration;
+            if (currentState == CircuitState.OPEN) {
+                return !openDurationElapsed;
+            }
+            return !openDurationElapsed && remainingProbeCount.get() <= 0;
+        }
+
+        private void startProbing(@NonNull CircuitState fromState, long now) {
+            if (state.compareAndSet(fromState, CircuitState.HALF_OPEN)) {
+                stateChangeTime.set(now);
+                remainingProbeCount.set(circuitBreakerProbeRequestCount);
+                if (fromState != CircuitState.HALF_OPEN) {
+                    notifyTransition(fromState, CircuitState.HALF_OPEN);
+                }
+            }
+        }
+
+        private void onSuccess() {
+            if (state.compareAndSet(CircuitState.HALF_OPEN, CircuitState.CLOSED)) {
+                resetWindow();
+                notifyTransition(CircuitState.HALF_OPEN, CircuitState.CLOSED);
+            }
+            record(successCounts);
+        }
+
+        private void onFailure() {
+            long now = SystemClock.elapsedRealtime();
+            if (state.compareAndSet(CircuitState.HALF_OPEN, CircuitState.OPEN)) {
+                stateChangeTime.set(now);
+                notifyTransition(CircuitState.HALF_OPEN, CircuitState.OPEN);
+                return;
+            }
+
+            record(failureCounts);
+
+            if (state.get() != CircuitState.CLOSED) {
+                return;
+            }
+
+            long currentBucketIndex = now / circuitBreakerBucketDuration;
+            long successCount = 0;
+            long failureCount = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                if (currentBucketIndex - bucketIndexes.get(i) < BUCKET_COUNT) {
+                    successCount += successCounts.get(i);
+                    failureCount += failureCounts.get(i);
+                }
+            }
+
+            long requestCount = successCount + failureCount;
+            if (requestCount >= circuitBreakerMinimumRequestCount
+                    && failureCount >= requestCount * circuitBreakerErrorRateThreshold
+                    && state.compareAndSet(CircuitState.CLOSED, CircuitState.OPEN)) {
+                stateChangeTime.set(now);
+                notifyTransition(CircuitState.CLOSED, CircuitState.OPEN);
+            }
+        }
+
+        private void record(@NonNull AtomicLongArray counts) {
+            long bucketIndex = SystemClock.elapsedRealtime() / circuitBreakerBucketDuration;
+            int slot = (int) (bucketIndex % BUCKET_COUNT);
+
+            long slotBucketIndex = bucketIndexes.get(slot);
+            if (slotBucketIndex != bucketIndex && bucketIndexes.compareAndSet(slot, slotBucketIndex, bucketIndex)) {
+                // this slot now counts a new time bucket; a result recorded concurrently may be lost, which is acceptable
+                successCounts.set(slot, 0);
+                failureCounts.set(slot, 0);
+            }
+            counts.incrementAndGet(slot);
+        }
+
+        private void resetWindow() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                successCounts.set(i, 0);
+                failureCounts.set(i, 0);
+            }
+        }
+
+        private void notifyTransition(@NonNull CircuitState previousState, @NonNull CircuitState newState) {
+            CircuitBreakerListener listener = circuitBreakerListener;
+            if (listener != null) {
+                listener.onCircuitStateChanged(placement, previousState, newState);
+            }
+        }
+    }
+
+    /// Adaptive load timeout
+
+    /**
+     * Enable the adaptive load timeout, computed for each ad format and placement from the SDK load latencies
+     * recorded by the adapter: the given percentile of the observed latencies plus a margin, bounded by a floor
+     * and a cap. A load still running after this deadline fails with {@link MaxAdapterError#TIMEOUT}, so that a
+     * slow placement does not hold up the AppLovin MAX waterfall, and its late result is ignored. The cap is used
+     * until enough latencies are recorded for the placement.
+     *
+     * @param percentile The percentile of the observed latencies, between 0 and 100, 0 to disable the adaptive timeout (default).
+     * @param margin The margin added to the percentile, in milliseconds.
+     * @param minTimeout The minimum timeout, in milliseconds.
+     * @param maxTimeout The maximum timeout, in milliseconds.
+     */
+    public static void setAdaptiveLoadTimeoutConfiguration(double percentile, long margin, long minTimeout, long maxTimeout) {
+        adaptiveLoadTimeoutMargin = Math.max(0, margin);
+        adaptiveLoadTimeoutMin = Math.max(0, minTimeout);
+        adaptiveLoadTimeoutMax = Math.max(adaptiveLoadTimeoutMin, maxTimeout);
+        adaptiveLoadTimeoutPercentile = Math.max(0, Math.min(100, percentile));
+    }
+
+    /**
+     * @return the number of loads failed by the adaptive load timeout.
+     */
+    public static long getAdaptiveLoadTimeoutCount() {
+        return adaptiveLoadTimeoutCount.get();
+    }
+
+    /**
+     * @return the current adaptive load timeout of the given ad format and placement, in milliseconds.
+     */
+    private static long getAdaptiveLoadTimeout(@NonNull LoadMetrics metrics) {
+        LatencySnapshot snapshot = new LatencySnapshot(metrics.format, metrics.placement, LoadStage.SDK_LOAD, metrics.histograms[LoadStage.SDK_LOAD.ordinal()]);
+        long loadCount = snapshot.count + metrics.timedOutLoadCount.get();
+        if (loadCount < ADAPTIVE_LOAD_TIMEOUT_MIN_SAMPLE_COUNT) {
+            return adaptiveLoadTimeoutMax;
+        }
+
+        // the timed out loads are ranked after the completed ones, their latency exceeding the timeout they failed with
+        long rank = (long) Math.ceil(adaptiveLoadTimeoutPercentile / 100 * loadCount);
+        long timeout;
+        if (rank > snapshot.count) {
+            timeout = metrics.lastTimedOutTimeout * ADAPTIVE_LOAD_TIMEOUT_GROWTH_FACTOR;
+        } else {
+            timeout = snapshot.getValueAtPercentile(100.0 * rank / snapshot.count) / 1000 + adaptiveLoadTimeoutMargin;
+        }
+        return Math.max(adaptiveLoadTimeoutMin, Math.min(adaptiveLoadTimeoutMax, timeout));
+    }
+
+    /**
+     * Start the adaptive load timeout of an SDK load, if enabled.
+     *
+     * @param onTimeout Called on the main thread if the SDK load did not complete before the timeout.
+     * @return the started timeout, or null if the adaptive load timeout is disabled.
+     */
+    @Nullable
+    private LoadTimeout startLoadTimeout(@NonNull LoadMetrics metrics, @NonNull Runnable onTimeout) {
+        if (adaptiveLoadTimeoutPercentile <= 0) {
+            return null;
+        }
+
+        long timeout = getAdaptiveLoadTimeout(metrics);
+        LoadTimeout loadTimeout = new LoadTimeout(mainLooperHandler, metrics, timeout, onTimeout);
+        mainLooperHandler.postDelayed(loadTimeout, timeout);
+        return loadTimeout;
+    }
+
+    /**
+     * Mark an SDK load as completed by its SDK callback.
+     *
+     * @return false if the load already failed with the adaptive load timeout, in which case the callback must be ignored.
+     */
+    private static boolean completeLoad(@Nullable LoadTimeout loadTimeout) {
+        return loadTimeout == null || loadTimeout.complete();
+    }
+
+    /**
+     * Adaptive timeout of one SDK load. Either the SDK callback or the timeout completes the load, never both.
+     */
+    private static class LoadTimeout implements Runnable {
+
+        @NonNull
+        private final Handler handler;
+
+        @NonNull
+        private final LoadMetrics metrics;
+
+        private final long timeout;
+
+        @NonNull
+        private final Runnable onTimeout;
+
+        @NonNull
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        public LoadTimeout(@NonNull Handler handler, @NonNull LoadMetrics metrics, long timeout, @NonNull Runnable onTimeout) {
+            this.handler = handler;
+            this.metrics = metrics;
+            this.timeout = timeout;
+            this.onTimeout = onTimeout;
+        }
+
+        private boolean complete() {
+            if (!completed.compareAndSet(false, true)) {
+                return false;
+            }
+            handler.removeCallbacks(this);
+            return true;
+        }
+
+        @Override
+        public void run() {
+            if (completed.compareAndSet(false, true)) {
+                adaptiveLoadTimeoutCount.incrementAndGet();
+
+                // the late SDK callback is ignored: the timed out load is counted apart from the latency histograms,
+                // otherwise the latencies recorded could never exceed the current timeout, which would only shrink
+                metrics.lastTimedOutTimeout = timeout;
+                metrics.timedOutLoadCount.incrementAndGet();
+
+                onTimeout.run();
+            }
+        }
+    }
+
+    /// Bidding
+
+    /**
+     * The adapter is set up in AppLovin MAX as a custom network, which AppLovin MAX only calls in waterfall lines:
+     * it runs no bidding auction with Equativ, so the adapter provides no bidding signals and a request carrying
+     * a bid response is a misconfiguration. A bid response must not be answered with an ad loaded
+     * from the placement, which AppLovin MAX would report and charge at the bid price.
+     *
+     * @return true if AppLovin MAX provided a bid response, in which case the load must fail.
+     */
+    private boolean isBidResponse(@NonNull MaxAdapterResponseParameters maxAdapterResponseParameters) {
+        String bidResponse = maxAdapterResponseParameters.getBidResponse();
+        if (bidResponse != null && !bidResponse.isEmpty()) {
+            Log.e(mediationTag(), "Bid responses are not supported by the Equativ custom network adapter, it must be set up in a waterfall line with a PlacementId.");
+            return true;
+        }
+        return false;
+    }
+
+    /// Placement lists
+
+    /**
+     * Set the maximum number of placements of an interstitial or native ad placement list loaded at the same time.
+     * With 1 (default), the placements are tried one after the other. Otherwise they are loaded in parallel in the
+     * order of the list, the first one to fill wins and the other loads are cancelled. Banner placements are always
+     * tried one after the other, since a banner view displays the ad it loads.
+     *
+     * @param concurrency The maximum number of placements loaded at the same time.
+     */
+    public static void setPlacementRaceConcurrency(int concurrency) {
+        placementRaceConcurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Convert the raw placement string to an ordered list of SASAdPlacement, each placement of the list being
+     * separated by '|' (ex: 123/456/789|123/456/790/targeting=string).
+     *
+     * @param rawAdPlacements The raw placement string set in the PlacementId section of the custom network.
+     * @return the list of placements, or null if one of them is not valid.
+     */
+    @Nullable
+    private List<SASAdPlacement> convertToAdPlacements(@Nullable String rawAdPlacements) {
+        // Quick fail if the given string is null or empty.
+        if (rawAdPlacements == null || rawAdPlacements.isEmpty()) {
+            return null;
+        }
+
+        List<SASAdPlacement> adPlacements = new ArrayList<>();
+        for (String rawAdPlacement : rawAdPlacements.split("\\|")) {
+            SASAdPlacement adPlacement = convertToAdPlacement(rawAdPlacement.trim());
+            if (adPlacement == null) {
+                return null;
+            }
+            adPlacements.add(adPlacement);
+        }
+        return adPlacements;
+    }
+
+    @NonNull
+    private static MaxAdapterError toMaxAdapterError(@NonNull SASException e) {
+        if (e.getType() == SASException.Type.NO_AD) {
+            return MaxAdapterError.NO_FILL;
+        } else if (e.getType() == SASException.Type.TIMEOUT) {
+            return MaxAdapterError.TIMEOUT;
+        } else {
+            return MaxAdapterError.UNSPECIFIED;
+        }
+    }
+
+    /**
+     * Run the given runnable immediately if called from the main thread, or post it to the main thread otherwise.
+     */
+    private void runOnMainThread(@NonNull Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            mainLooperHandler.post(runnable);
+        }
+    }
+
+    /**
+     * Load of an ordered list of placements, with at most a given number of SDK loads running at the same time.
+     * Placements failing fast (no-fill backoff, open circuit breaker) are skipped, and a failed load starts the
+     * next placement of the list. The first load to succeed wins and the other running loads are cancelled.
+     * It is only accessed from the main thread.
+     *
+     * @param <T> The SDK object loading a placement.
+     */
+    private abstract static class PlacementRace<T> {
+
+        @NonNull
+        private final List<SASAdPlacement> adPlacements;
+
+        private final int concurrency;
+
+        @NonNull
+        private final List<T> runningLoaders = new ArrayList<>();
+
+        // the placements actually requested, without the ones skipped or never reached
+        @NonNull
+        private final List<SASAdPlacement> startedPlacements = new ArrayList<>();
+
+        private int nextPlacementIndex = 0;
+
+        private boolean finished = false;
+
+        // the error reported if no placement fills: the error of the last failed placement
+        @NonNull
+        private MaxAdapterError lastError = MaxAdapterError.NO_FILL;
+
+        public PlacementRace(@NonNull List<SASAdPlacement> adPlacements, int concurrency) {
+            this.adPlacements = adPlacements;
+            this.concurrency = concurrency;
+        }
+
+        @NonNull
+        abstract T createLoader(@NonNull SASAdPlacement adPlacement);
+
+        abstract void startLoad(@NonNull T loader, @NonNull SASAdPlacement adPlacement);
+
+        abstract void cancelLoad(@NonNull T loader);
+
+        abstract void onAllLoadsFailed(@NonNull MaxAdapterError error);
+
+        /**
+         * Called once a placement won the race or all of them failed, but not when the race is cancelled.
+         *
+         * @param startedPlacements The placements for which a load was started.
+         */
+        void onFinished(@NonNull List<SASAdPlacement> startedPlacements) {
+        }
+
+        private void start() {
+            startNextLoads();
+        }
+
+        private void startNextLoads() {
+            while (!finished && runningLoaders.size() < concurrency && nextPlacementIndex < adPlacements.size()) {
+                SASAdPlacement adPlacement = adPlacements.get(nextPlacementIndex++);
+
+                MaxAdapterError fastFailError = getFastFailError(placementKey(adPlacement));
+                if (fastFailError != null) {
+                    lastError = fastFailError;
+                    continue;
+                }
+
+                // registered before the load starts, in case the SDK reports its result synchronously
+                T loader = createLoader(adPlacement);
+                runningLoaders.add(loader);
+                startedPlacements.add(adPlacement);
+                startLoad(loader, adPlacement);
+            }
+
+            if (!finished && runningLoaders.isEmpty()) {
+                finished = true;
+                onAllLoadsFailed(lastError);
+                onFinished(startedPlacements);
+            }
+        }
+
+        /**
+         * @return true if the given loader is still loading its placement.
+         */
+        private boolean isRunning(@NonNull T loader) {
+            return runningLoaders.contains(loader);
+        }
+
+        /**
+         * @return true if the given loader won the race, false if it was cancelled.
+         */
+        private boolean onLoadSucceeded(@NonNull T loader) {
+            if (finished || !runningLoaders.remove(loader)) {
+                return false;
+            }
+
+            finished = true;
+            for (T runningLoader : runningLoaders) {
+                cancelLoad(runningLoader);
+            }
+            runningLoaders.clear();
+            onFinished(startedPlacements);
+            return true;
+        }
+
+        private void onLoadFailed(@NonNull T loader, @NonNull MaxAdapterError error) {
+            if (finished || !runningLoaders.remove(loader)) {
+                return;
+            }
+
+            lastError = error;
+            startNextLoads();
+        }
+
+        /**
+         * Cancel the running loads, without notifying AppLovin MAX.
+         */
+        private void cancel() {
+            if (finished) {
+                return;
+            }
+
+            finished = true;
+            for (T runningLoader : runningLoaders) {
+                cancelLoad(runningLoader);
+            }
+            runningLoaders.clear();
+        }
+    }
+
+    /// Banner adapter implementation
+
+    @Override
+    public void loadAdViewAd(MaxAdapterResponseParameters maxAdapterResponseParameters, MaxAdFormat maxAdFormat, Activity activity, MaxAdViewAdapterListener maxAdViewAdapterListener) {
+        long loadStartTime = System.nanoTime();
+        List<SASAdPlacement> adPlacements = convertToAdPlacements(maxAdapterResponseParameters.getThirdPartyAdPlacementId());
+
+        if (adPlacements == null) {
+            Log.e(mediationTag(), "The PlacementId found is not a valid Equativ placement. This placement should be formatted like: <site id>/<page id>/<format id>[/<targeting string> (optional)] (ex: 123/456/789/targetingString or 123/456/789), several placements being separated by '|' (ex: 123/456/789|123/456/790). The invalid found PlacementId string: " + maxAdapterResponseParameters.getThirdPartyAdPlacementId());
+            maxAdViewAdapterListener.onAdViewAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
+            return;
+        }
+
+        if (isBidResponse(maxAdapterResponseParameters)) {
+            maxAdViewAdapterListener.onAdViewAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
+            return;
+        }
+
+        // the parsing and the dispatch are attributed to the first placement of the list
+        LoadMetrics metrics = getLoadMetrics(FORMAT_BANNER, adPlacements.get(0));
+        metrics.record(LoadStage.PLACEMENT_PARSING, loadStartTime);
+
+        // Configure Equativ Display SDK
+        configureSdkIfNeeded(activity);
+
+        // Execute in UI thread
+        long postTime = System.nanoTime();
+        mainLooperHandler.post(() -> {
+            metrics.record(LoadStage.MAIN_THREAD_DISPATCH, postTime);
+
+            if (bannerRace != null) {
+                bannerRace.cancel();
+                bannerRace = null;
+            }
+
+            // a single placement loads in the banner view of the adapter. The placements of a list each load in their
+            // own banner view, so that the late ad of a cancelled or timed out placement never replaces the delivered
+            // one. A banner view renders the ad it loads, so the placements of a banner are still tried one at a time.
+            boolean reuseBannerView = adPlacements.size() == 1;
+            bannerRace = new PlacementRace<SASBannerView>(adPlacements, 1) {
+
+                @NonNull
+                @Override
+                SASBannerView createLoader(@NonNull SASAdPlacement adPlacement) {
+                    if (!reuseBannerView) {
+                        return createBannerView(activity);
+                    }
+
+                    if (bannerView == null) {
+                        bannerView = createBannerView(activity);
+                    }
+                    return bannerView;
+                }
+
+                @Override
+                void startLoad(@NonNull SASBannerView loader, @NonNull SASAdPlacement adPlacement) {
+                    loadBannerPlacement(this, loader, adPlacement, maxAdViewAdapterListener);
+                }
+
+                @Override
+                void cancelLoad(@NonNull SASBannerView loader) {
+                    destroyLoadingBannerView(loader);
+                }
+
+                @Override
+                void onAllLoadsFailed(@NonNull MaxAdapterError error) {
+                    maxAdViewAdapterListener.onAdViewAdLoadFailed(error);
+                }
+            };
+            bannerRace.start();
+        });
+    }
+
+    /**
+     * Load one placement of a banner placement list in the given banner view. Must be called from the main thread.
+     */
+    private void loadBannerPlacement(@NonNull PlacementRace<SASBannerView> race,
+                                     @NonNull SASBannerView loadingBannerView,
+                                     @NonNull SASAdPlacement adPlacement,
+                                     @NonNull MaxAdViewAdapterListener maxAdViewAdapterListener) {
+        LoadMetrics metrics = getLoadMetrics(FORMAT_BANNER, adPlacement);
+
+        LoadTimeout loadTimeout = startLoadTimeout(metrics, () -> {
+            if (race.isRunning(loadingBannerView)) {
+                // the late result of the SDK load must neither reach AppLovin MAX nor be displayed
+                destroyLoadingBannerView(loadingBannerView);
+                race.onLoadFailed(loadingBannerView, MaxAdapterError.TIMEOUT);
+            }
+        });
+
+        // the banner view calls its listener again for each automatic refresh, which are forwarded to AppLovin MAX
+        // but are not loads of this placement
+        AtomicBoolean sdkLoadRecorded = new AtomicBoolean(false);
+
+        long sdkLoadStartTime = System.nanoTime();
+        loadingBannerView.setBannerListener(new SASBannerView.BannerListener() {
+
+            @Override
+            public void onBannerAdCollapsed() {
+                maxAdViewAdapterListener.onAdViewAdCollapsed();
+            }
+
+            @Override
+            public void onBannerAdExpanded() {
+                maxAdViewAdapterListener.onAdViewAdExpanded();
+            }
+
+            @Override
+            public void onBannerAdAudioStart() {
+                // not supported by AppLovin
+            }
+
+            @Override
+            public void onBannerAdAudioStop() {
+                // not supported by AppLovin
+            }
+
+            @Override
+            public void onBannerAdRequestClose() {
+                // Nothing to do
+                maxAdViewAdapterListener.onAdViewAdHidden();
+            }
+
+            @Override
+            public void onBannerAdLoaded(@NonNull SASAdInfo sasAdInfo) {
+                long callbackTime = System.nanoTime();
+                recordLoadSuccess(metrics.placement);
+                if (!sdkLoadRecorded.compareAndSet(false, true)) {
+                    runOnMainThread(() -> {
+                        // only the refreshes of the delivered banner view reach AppLovin MAX
+                        if (loadingBannerView == bannerView) {
+                            maxAdViewAdapterListener.onAdViewAdLoaded(loadingBannerView);
+                            maxAdViewAdapterListener.onAdViewAdDisplayed();
+                        }
+                    });
+                    return;
+                }
+
+                metrics.record(LoadStage.SDK_LOAD, sdkLoadStartTime);
+                if (!completeLoad(loadTimeout)) {
+                    return;
+                }
+
+                runOnMainThread(() -> {
+                    if (race.onLoadSucceeded(loadingBannerView)) {
+                        SASBannerView previousBannerView = bannerView;
+                        bannerView = loadingBannerView;
+
+                        metrics.record(LoadStage.LISTENER_DISPATCH, callbackTime);
+                        maxAdViewAdapterListener.onAdViewAdLoaded(loadingBannerView);
+                        maxAdViewAdapterListener.onAdViewAdDisplayed();
+
+                        // the banner view delivered by the previous load of this adapter is replaced
+                        if (previousBannerView != null && previousBannerView != loadingBannerView) {
+                            releaseBannerView(previousBannerView);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onBannerAdFailedToLoad(@NonNull SASException e) {
+                recordLoadFailure(metrics.placement, e);
+                if (!sdkLoadRecorded.compareAndSet(false, true)) {
+                    runOnMainThread(() -> {
+                        if (loadingBannerView == bannerView) {
+                            maxAdViewAdapterListener.onAdViewAdLoadFailed(toMaxAdapterError(e));
+                        }
+                    });
+                    return;
+                }
+
+                metrics.record(LoadStage.SDK_LOAD, sdkLoadStartTime);
+                if (!completeLoad(loadTimeout)) {
+                    return;
+                }
+
+                runOnMainThread(() -> {
+                    if (race.isRunning(loadingBannerView)) {
+                        // the banner view of the adapter is kept for its next load
+                        if (loadingBannerView != bannerView) {
+                            releaseBannerView(loadingBannerView);
+                        }
+                        race.onLoadFailed(loadingBannerView, toMaxAdapterError(e));
+                    }
+                });
+            }
+
+            @Override
+            public void onBannerAdClicked() {
+                maxAdViewAdapterListener.onAdViewAdClicked();
+            }
+        });
+
+        loadingBannerView.loadAd(adPlacement);
+    }
+
+    /**
+     * @return a banner view from the pool if it is enabled, or a new one. Must be called from the main thread.
+     */
+    @NonNull
+    private static SASBannerView createBannerView(@NonNull Activity activity) {
+        return bannerViewPoolSize > 0 ? bannerViewPool.acquire(activity) : trackLiveObject(new SASBannerView(activity));
+    }
+
+    /**
+     * Destroy a banner view to stop its SDK load. It is not pooled, as its ad may still be delivered. Must be called
+     * from the main thread.
+     */
+    private void destroyLoadingBannerView(@NonNull SASBannerView loadingBannerView) {
+        loadingBannerView.setBannerListener(BannerViewPool.IDLE_BANNER_LISTENER);
+        loadingBannerView.onDestroy();
+        if (loadingBannerView == bannerView) {
+            // the next load of this adapter gets a new banner view
+            bannerView = null;
+        }
+    }
+
+    /**
+     * Return a banner view that holds no ad being loaded to the pool, or destroy it. Must be called from the main thread.
+     */
+    private static void releaseBannerView(@NonNull SASBannerView releasedBannerView) {
+        if (bannerViewPoolSize > 0) {
+            bannerViewPool.release(releasedBannerView);
+        } else {
+            releasedBannerView.setBannerListener(BannerViewPool.IDLE_BANNER_LISTENER);
+            releasedBannerView.onDestroy();
+        }
+    }
+
+    /// Banner view pool
+
+    /**
+     * Set the maximum number of banner views kept by the pool shared by all adapter instances. Banner views
+     * released by destroyed adapter instances are kept in this pool and reused by the next banner requests
+     * made from the same activity, instead of constructing a new banner view on the main thread.
+     *
+     * @param poolSize The maximum number of pooled banner views, 0 to disable the pool (default).
+     */
+    public static void setBannerViewPoolSize(int poolSize) {
+        bannerViewPoolSize = Math.max(0, poolSize);
+    }
+
+    /**
+     * @return the number of banner requests served with a pooled banner view.
+     */
+    public static long getBannerViewPoolReuseCount() {
+        return bannerViewPool.reuseCount.get();
+    }
+
+    /**
+     * @return the estimated banner view construction time saved by the pool, in milliseconds.
+     */
+    public static long getBannerViewPoolSavedConstructionTime() {
+        return bannerViewPool.getSavedConstructionTime();
+    }
+
+    /**
+     * Pool of released banner views. Banner views are bound to the activity they were created with, so they
+     * are only reused for this activity, and destroyed with it. It is only accessed from the main thread.
+     */
+    private static class BannerViewPool implements Application.ActivityLifecycleCallbacks {
+
+        // banner listener set on pooled banner views, so that they do not forward events to their previous adapter
+        private static final SASBannerView.BannerListener IDLE_BANNER_LISTENER = new SASBannerView.BannerListener() {
+            @Override
+            public void onBannerAdLoaded(@NonNull SASAdInfo sasAdInfo) {
+            }
+
+            @Override
+            public void onBannerAdFailedToLoad(@NonNull SASException e) {
+            }
+
+            @Override
+            public void onBannerAdClicked() {
+            }
+
+            @Override
+            public void onBannerAdExpanded() {
+            }
+
+            @Override
+            public void onBannerAdCollapsed() {
+            }
+
+            @Override
+            public void onBannerAdAudioStart() {
+            }
+
+            @Override
+            public void onBannerAdAudioStop() {
+            }
+
+            @Override
+            public void onBannerAdRequestClose() {
+            }
+        };
+
+        @NonNull
+        private final List<SASBannerView> bannerViews = new ArrayList<>();
+
+        @NonNull
+        private final AtomicLong reuseCount = new AtomicLong();
+
+        @NonNull
+        private final AtomicLong constructionCount = new AtomicLong();
+
+        @NonNull
+        private final AtomicLong totalConstructionTime = new AtomicLong();
+
+        private boolean lifecycleCallbacksRegistered = false;
+
+        /**
+         * @return a pooled banner view created with this activity, or a new banner view if none is available.
+         */
+        @NonNull
+        private SASBannerView acquire(@NonNull Activity activity) {
+            Iterator<SASBannerView> iterator = bannerViews.iterator();
+            while (iterator.hasNext()) {
+                SASBannerView bannerView = iterator.next();
+                if (bannerView.getContext() == activity) {
+                    iterator.remove();
+                    reuseCount.incrementAndGet();
+                    resumeWebViews(bannerView);
+                    return bannerView;
+                }
+            }
+
+            if (!lifecycleCallbacksRegistered) {
+                activity.getApplication().registerActivityLifecycleCallbacks(this);
+                lifecycleCallbacksRegistered = true;
+            }
+
+            long startTime = System.nanoTime();
+            SASBannerView bannerView = trackLiveObject(new SASBannerView(activity));
+            totalConstructionTime.addAndGet(System.nanoTime() - startTime);
+            constructionCount.incrementAndGet();
+            return bannerView;
+        }
+
+        private void release(@NonNull SASBannerView bannerView) {
+            bannerView.setBannerListener(IDLE_BANNER_LISTENER);
+
+            if (bannerView.getParent() instanceof ViewGroup) {
+                ((ViewGroup) bannerView.getParent()).removeView(bannerView);
+            }
+
+            Context context = bannerView.getContext();
+            boolean activityGone = context instanceof Activity && ((Activity) context).isFinishing();
+
+            if (activityGone || bannerViews.size() >= bannerViewPoolSize) {
+                bannerView.onDestroy();
+            } else {
+                // the previous creative must not keep running, nor be shown again, while the banner view is pooled
+                resetWebViews(bannerView);
+                bannerViews.add(bannerView);
+            }
+        }
+
+        /**
+         * Unload the creative of the WebViews of a released banner view and pause them.
+         */
+        private static void resetWebViews(@NonNull View view) {
+            if (view instanceof WebView) {
+                WebView webView = (WebView) view;
+                webView.stopLoading();
+                webView.loadUrl("about:blank");
+                webView.onPause();
+            } else if (view instanceof ViewGroup) {
+                ViewGroup viewGroup = (ViewGroup) view;
+                for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                    resetWebViews(viewGroup.getChildAt(i));
+                }
+            }
+        }
+
+        /**
+         * Resume the WebViews of a banner view paused by {@link #resetWebViews(View)}.
+         */
+        private static void resumeWebViews(@NonNull View view) {
+            if (view instanceof WebView) {
+                ((WebView) view).onResume();
+            } else if (view instanceof ViewGroup) {
+                ViewGroup viewGroup = (ViewGroup) view;
+                for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                    resumeWebViews(viewGroup.getChildAt(i));
+                }
+            }
+        }
+
+        /**
+         * Destroy the pooled banner views, which are idle, from the first trim stage.
+         */
+        private void trimMemory(int trimStage, @NonNull TrimResult result) {
+            for (SASBannerView bannerView : bannerViews) {
+                bannerView.onDestroy();
+                result.releasedAdCount++;
+            }
+            bannerViews.clear();
+        }
+
+        private long getSavedConstructionTime() {
+            long count = constructionCount.get();
+            return count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalConstructionTime.get() / count * reuseCount.get()) : 0;
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+            Iterator<SASBannerView> iterator = bannerViews.iterator();
+            while (iterator.hasNext()) {
+                SASBannerView bannerView = iterator.next();
+                if (bannerView.getContext() == activity) {
+                    iterator.remove();
+                    bannerView.onDestroy();
+                }
+            }
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+    }
+
+    /// Interstitial adapter implementation
+
+    @Override
+    public void loadInterstitialAd(MaxAdapterResponseParameters maxAdapterResponseParameters, Activity activity, MaxInterstitialAdapterListener maxInterstitialAdapterListener) {
+        long loadStartTime = System.nanoTime();
+        List<SASAdPlacement> adPlacements = convertToAdPlacements(maxAdapterResponseParameters.getThirdPartyAdPlacementId());
+
+        if (adPlacements == null) {
+            Log.e(mediationTag(), "The PlacementId found is not a valid Equativ placement. This placement should be formatted like: <site id>/<page id>/<format id>[/<targeting string> (optional)] (ex: 123/456/789/targetingString or 123/456/789), several placements being separated by '|' (ex: 123/456/789|123/456/790). The invalid found PlacementId string: " + maxAdapterResponseParameters.getThirdPartyAdPlacementId());
+            maxInterstitialAdapterListener.onInterstitialAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
+            return;
+        }
+
+        if (isBidResponse(maxAdapterResponseParameters)) {
+            maxInterstitialAdapterListener.onInterstitialAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
+            return;
+        }
+
+        // the parsing and the dispatch are attributed to the first placement of the list
+        LoadMetrics metrics = getLoadMetrics(FORMAT_INTERSTITIAL, adPlacements.get(0));
+        metrics.record(LoadStage.PLACEMENT_PARSING, loadStartTime);
+
+        // Configure Equativ Display SDK
+        configureSdkIfNeeded(activity);
+
+        // Execute in UI thread
+        long postTime = System.nanoTime();
+        mainLooperHandler.post(() -> {
+            metrics.record(LoadStage.MAIN_THREAD_DISPATCH, postTime);
+
+            if (interstitialRace != null) {
+                interstitialRace.cancel();
+                interstitialRace = null;
+            }
+
+            if (interstitialManager != null) {
+                interstitialManager.onDestroy();
+                interstitialManager = null;
+            }
+
+            if (interstitialPreloadPoolSize > 0) {
+                for (SASAdPlacement adPlacement : adPlacements) {
+                    SASInterstitialManager preloadedInterstitialManager = interstitialPreloadPool.take(activity, adPlacement);
+
+                    if (preloadedInterstitialManager != null) {
+                        // the consumed interstitial is replaced in the background
+                        interstitialPreloadPool.refill(activity, adPlacement);
+
+                        LoadMetrics preloadedMetrics = getLoadMetrics(FORMAT_INTERSTITIAL, adPlacement);
+                        interstitialManager = preloadedInterstitialManager;
+                        interstitialManager.setInterstitialManagerListener(createInterstitialManagerListener(maxInterstitialAdapterListener, preloadedMetrics, System.nanoTime(), null, null, preloadedInterstitialManager));
+                        maxInterstitialAdapterListener.onInterstitialAdLoaded();
+                        return;
+                    }
+                }
+            }
+
+            // the fast fail checks are done by the race, after the preload pool which may still hold an interstitial
+            // loaded before the failures
+            interstitialRace = new PlacementRace<SASInterstitialManager>(adPlacements, placementRaceConcurrency) {
+
+                @NonNull
+                @Override
+                SASInterstitialManager createLoader(@NonNull SASAdPlacement adPlacement) {
+                    return trackLiveObject(new SASInterstitialManager(activity, adPlacement));
+                }
+
+                @Override
+                void startLoad(@NonNull SASInterstitialManager loader, @NonNull SASAdPlacement adPlacement) {
+                    loadInterstitialPlacement(this, loader, adPlacement, maxInterstitialAdapterListener);
+                }
+
+                @Override
+                void cancelLoad(@NonNull SASInterstitialManager loader) {
+                    loader.onDestroy();
+                }
+
+                @Override
+                void onAllLoadsFailed(@NonNull MaxAdapterError error) {
+                    maxInterstitialAdapterListener.onInterstitialAdLoadFailed(error);
+                }
+
+                @Override
+                void onFinished(@NonNull List<SASAdPlacement> startedPlacements) {
+                    // after a miss, the pool is only refilled once the live load completed, so that it does not compete with it
+                    if (interstitialPreloadPoolSize > 0) {
+                        for (SASAdPlacement adPlacement : startedPlacements) {
+                            interstitialPreloadPool.refill(activity, adPlacement);
+                        }
+                    }
+                }
+            };
+            interstitialRace.start();
+        });
+    }
+
+    /**
+     * Load one placement of an interstitial placement list. Must be called from the main thread.
+     */
+    private void loadInterstitialPlacement(@NonNull PlacementRace<SASInterstitialManager> race,
+                                           @NonNull SASInterstitialManager loadingInterstitialManager,
+                                           @NonNull SASAdPlacement adPlacement,
+                                           @NonNull MaxInterstitialAdapterListener maxInterstitialAdapterListener) {
+        LoadMetrics metrics = getLoadMetrics(FORMAT_INTERSTITIAL, adPlacement);
+
+        LoadTimeout loadTimeout = startLoadTimeout(metrics, () -> {
+            if (race.isRunning(loadingInterstitialManager)) {
+                loadingInterstitialManager.onDestroy();
+                race.onLoadFailed(loadingInterstitialManager, MaxAdapterError.TIMEOUT);
+            }
+        });
+
+        loadingInterstitialManager.setInterstitialManagerListener(createInterstitialManagerListener(maxInterstitialAdapterListener, metrics, System.nanoTime(), loadTimeout, race, loadingInterstitialManager));
+        loadingInterstitialManager.loadAd();
+    }
+
+    @NonNull
+    private SASInterstitialManager.InterstitialManagerListener createInterstitialManagerListener(@NonNull MaxInterstitialAdapterListener maxInterstitialAdapterListener,
+                                                                                                @NonNull LoadMetrics metrics,
+                                                                                                long sdkLoadStartTime,
+                                                                                                @Nullable LoadTimeout loadTimeout,
+                                                                                                @Nullable PlacementRace<SASInterstitialManager> race,
+                                                                                                @NonNull SASInterstitialManager loadingInterstitialManager) {
+        return new SASInterstitialManager.InterstitialManagerListener() {
+
+            @Override
+            public void onInterstitialAdAudioStop() {
+                // not supported by AppLovin
+            }
+
+            @Override
+            public void onInterstitialAdAudioStart() {
+                // not supported by AppLovin
+            }
+
+            @Override
+            public void onInterstitialAdLoaded(@NonNull SASAdInfo sasAdInfo) {
+                long callbackTime = System.nanoTime();
+                metrics.record(LoadStage.SDK_LOAD, sdkLoadStartTime);
+                recordLoadSuccess(metrics.placement);
+                if (!completeLoad(loadTimeout)) {
+                    return;
+                }
+
+                runOnMainThread(() -> {
+                    // preloaded interstitials are not loaded through a race
+                    if (race == null || race.onLoadSucceeded(loadingInterstitialManager)) {
+                        interstitialManager = loadingInterstitialManager;
+                        metrics.record(LoadStage.LISTENER_DISPATCH, callbackTime);
+                        maxInterstitialAdapterListener.onInterstitialAdLoaded();
+                    }
+                });
+            }
+
+            @Override
+            public void onInterstitialAdFailedToLoad(@NonNull SASException e) {
+                metrics.record(LoadStage.SDK_LOAD, sdkLoadStartTime);
+                recordLoadFailure(metrics.placement, e);
+                if (!completeLoad(loadTimeout)) {
+                    return;
+                }
+
+                runOnMainThread(() -> {
+                    if (race == null) {
+                        maxInterstitialAdapterListener.onInterstitialAdLoadFailed(toMaxAdapterError(e));
+                    } else {
+                        race.onLoadFailed(loadingInterstitialManager, toMaxAdapterError(e));
+                    }
+                });
+            }
+
+            @Override
+            public void onInterstitialAdShown() {
+                maxInterstitialAdapterListener.onInterstitialAdDisplayed();
+            }
+
+            @Override
+            public void onInterstitialAdFailedToShow(@NonNull SASException e) {
+                maxInterstitialAdapterListener.onInterstitialAdDisplayFailed(MaxAdapterError.INTERNAL_ERROR);
+            }
+
+            @Override
+            public void onInterstitialAdClosed() {
+                maxInterstitialAdapterListener.onInterstitialAdHidden();
+            }
+
+            @Override
+            public void onInterstitialAdClicked() {
+                maxInterstitialAdapterListener.onInterstitialAdClicked();
+            }
+        };
+    }
+
+    @Override
+    public void showInterstitialAd(MaxAdapterResponseParameters maxAdapterResponseParameters, Activity activity, MaxInterstitialAdapterListener maxInterstitialAdapterListener) {
+        if (interstitialManager != null && interstitialManager.getAdStatus() == SASAdStatus.READY) {
+            interstitialManager.show();
+        } else {
+            maxInterstitialAdapterListener.onInterstitialAdDisplayFailed(MaxAdapterError.AD_NOT_READY);
+        }
+    }
+
+    /// Interstitial preload pool
+
+    /**
+     * Enable the interstitial preload pool, shared by all adapter instances. For each placement, the pool keeps
+     * up to the given number of interstitials loaded in advance, so that an interstitial request is answered
+     * immediately when a ready interstitial is available. Consumed interstitials are replaced in the background.
+     *
+     * @param poolSizePerPlacement The number of interstitials preloaded for each placement, 0 to disable the pool (default).
+     *                             Interstitials beyond this number are destroyed, so 0 also empties the pool.
+     * @param readyTimeToLive The time in milliseconds an interstitial can wait in the pool once loaded, after which it is discarded.
+     */
+    public static void setInterstitialPreloadPoolConfiguration(int poolSizePerPlacement, long readyTimeToLive) {
+        int poolSize = Math.max(0, poolSizePerPlacement);
+        interstitialPreloadPoolSize = poolSize;
+        interstitialPreloadTimeToLive = Math.max(0, readyTimeToLive);
+        interstitialPreloadPool.mainLooperHandler.post(() -> interstitialPreloadPool.trimToSize(poolSize));
+    }
+
+    /**
+     * @return the number of interstitial requests answered with a ready interstitial from the preload pool.
+     */
+    public static long getInterstitialPreloadPoolHitCount() {
+        return interstitialPreloadPool.hitCount.get();
+    }
+
+    /**
+     * @return the number of interstitial requests for which no ready interstitial was available in the preload pool.
+     */
+    public static long getInterstitialPreloadPoolMissCount() {
+        return interstitialPreloadPool.missCount.get();
+    }
+
+    /**
+     * @return the number of preloaded interstitials discarded because they stayed too long in the pool.
+     */
+    public static long getInterstitialPreloadPoolExpiredCount() {
+        return interstitialPreloadPool.expiredCount.get();
+    }
+
+    /**
+     * Pool of interstitial managers loaded in advance, by placement. It is only accessed from the main thread.
+     */
+    private static class InterstitialPreloadPool implements Application.ActivityLifecycleCallbacks {
+
+        @NonNull
+        private final Map<String, List<PreloadedInterstitial>> preloadedInterstitials = new HashMap<>();
+
+        @NonNull
+        private final Handler mainLooperHandler = new Handler(Looper.getMainLooper());
+
+        private boolean lifecycleCallbacksRegistered = false;
+
+        @NonNull
+        private final AtomicLong hitCount = new AtomicLong();
+
+        @NonNull
+        private final AtomicLong missCount = new AtomicLong();
+
+        @NonNull
+        private final AtomicLong expiredCount = new AtomicLong();
+
+        /**
+         * Remove a ready interstitial manager from the pool, discarding the expired ones and the ones created for
+         * another activity on the way.
+         *
+         * @return a ready interstitial manager created for this activity, or null if none is available for this placement.
+         */
+        @Nullable
+        private SASInterstitialManager take(@NonNull Activity activity, @NonNull SASAdPlacement adPlacement) {
+            List<PreloadedInterstitial> interstitials = preloadedInterstitials.get(placementKey(adPlacement));
+            if (interstitials != null) {
+                long now = SystemClock.elapsedRealtime();
+                Iterator<PreloadedInterstitial> iterator = interstitials.iterator();
+                while (iterator.hasNext()) {
+                    PreloadedInterstitial interstitial = iterator.next();
+                    if (!interstitial.isReady()) {
+                        continue;
+                    }
+
+                    iterator.remove();
+
+                    if (now - interstitial.readyTime > interstitialPreloadTimeToLive
+                            || interstitial.manager.getAdStatus() != SASAdStatus.READY
+                            || interstitial.isActivityGone()) {
+                        expiredCount.incrementAndGet();
+                        interstitial.manager.onDestroy();
+                        continue;
+                    }
+
+                    if (interstitial.activityReference.get() != activity) {
+                        // an interstitial manager shows its ad from the activity it was created with
+                        interstitial.manager.onDestroy();
+                        continue;
+                    }
+
+                    hitCount.incrementAndGet();
+                    return interstitial.manager;
+                }
+            }
+
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        /**
+         * Destroy the loading and ready interstitials from the second trim stage. They are loaded again at the next
+         * request for their placement.
+         */
+        private void trimMemory(int trimStage, @NonNull TrimResult result) {
+            if (trimStage < TRIM_STAGE_PRELOADED) {
+                return;
+            }
+
+            for (List<PreloadedInterstitial> interstitials : preloadedInterstitials.values()) {
+                for (PreloadedInterstitial interstitial : interstitials) {
+                    interstitial.manager.onDestroy();
+                    result.releasedAdCount++;
+                }
+                interstitials.clear();
+            }
+        }
+
+        /**
+         * Start loading interstitials until the pool holds the configured number of loading or ready
+         * interstitials for this placement.
+         */
+        private void refill(@NonNull Activity activity, @NonNull SASAdPlacement adPlacement) {
+            if (!lifecycleCallbacksRegistered) {
+                activity.getApplication().registerActivityLifecycleCallbacks(this);
+                lifecycleCallbacksRegistered = true;
+            }
+
+            String key = placementKey(adPlacement);
+            if (isBlocked(key)) {
+                // a backed off or failing placement is not preloaded, the next request refills it
+                return;
+            }
+
+            List<PreloadedInterstitial> interstitials = preloadedInterstitials.get(key);
+            if (interstitials == null) {
+                interstitials = new ArrayList<>();
+                preloadedInterstitials.put(key, interstitials);
+            }
+
+            // each preload is a request of its own: while the circuit is half-open, it takes its own probe
+            while (interstitials.size() < interstitialPreloadPoolSize && allowCircuitRequest(key)) {
+                PreloadedInterstitial interstitial = new PreloadedInterstitial(activity, adPlacement, interstitials);
+                interstitials.add(interstitial);
+                interstitial.manager.loadAd();
+            }
+        }
+
+        /**
+         * Destroy the interstitials beyond the given number for each placement, the most recent ones first.
+         */
+        private void trimToSize(int poolSize) {
+            for (List<PreloadedInterstitial> interstitials : preloadedInterstitials.values()) {
+                while (interstitials.size() > poolSize) {
+                    interstitials.remove(interstitials.size() - 1).manager.onDestroy();
+                }
+            }
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+            // the interstitial managers retain the activity they were created with
+            for (List<PreloadedInterstitial> interstitials : preloadedInterstitials.values()) {
+                Iterator<PreloadedInterstitial> iterator = interstitials.iterator();
+                while (iterator.hasNext()) {
+                    PreloadedInterstitial interstitial = iterator.next();
+                    Activity interstitialActivity = interstitial.activityReference.get();
+                    if (interstitialActivity == null || interstitialActivity == activity) {
+                        iterator.remove();
+                        interstitial.manager.onDestroy();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+    }
+
+    private static class PreloadedInterstitial implements SASInterstitialManager.InterstitialManagerListener {
+
+        @NonNull
+        private final SASInterstitialManager manager;
+
+        @NonNull
+        private final WeakReference<Activity> activityReference;
+
+        // the pool list this interstitial belongs to
+        @NonNull
+        private final List<PreloadedInterstitial> interstitials;
+
+        @NonNull
+        private final String placement;
+
+        // elapsed realtime at which the interstitial was loaded, 0 while loading
+        private long readyTime = 0;
+
+        public PreloadedInterstitial(@NonNull Activity activity,
+                                     @NonNull SASAdPlacement adPlacement,
+                                     @NonNull List<PreloadedInterstitial> interstitials) {
+            this.manager = trackLiveObject(new SASInterstitialManager(activity, adPlacement));
+            this.activityReference = new WeakReference<>(activity);
+            this.interstitials = interstitials;
+            this.placement = placementKey(adPlacement);
+            this.manager.setInterstitialManagerListener(this);
+        }
+
+        private boolean isReady() {
+            return readyTime > 0;
+        }
+
+        private boolean isActivityGone() {
+            Activity activity = activityReference.get();
+            return activity == null || activity.isFinishing();
+        }
+
+        @Override
+        public void onInterstitialAdLoaded(@NonNull SASAdInfo sasAdInfo) {
+            readyTime = SystemClock.elapsedRealtime();
+            recordLoadSuccess(placement);
+        }
+
+        @Override
+        public void onInterstitialAdFailedToLoad(@NonNull SASException e) {
+            // the failed slot is refilled at the next request for this placement, unless it fails fast by then
+            recordLoadFailure(placement, e);
+            interstitials.remove(this);
+            manager.onDestroy();
+        }
+
+        @Override
+        public void onInterstitialAdShown() {
+            // the listener is replaced before the interstitial is shown
+        }
+
+        @Override
+        public void onInterstitialAdFailedToShow(@NonNull SASException e) {
+            // the listener is replaced before the interstitial is shown
+        }
+
+        @Override
+        public void onInterstitialAdClosed() {
+            // the listener is replaced before the interstitial is shown
+        }
+
+        @Override
+        public void onInterstitialAdClicked() {
+            // the listener is replaced before the interstitial is shown
+        }
+
+        @Override
+        public void onInterstitialAdAudioStart() {
+            // not supported by AppLovin
+        }
+
+        @Override
+        public void onInterstitialAdAudioStop() {
+            // not supported by AppLovin
+        }
+    }
+
+    /// Native Ad Adapter Implementation
+
+    @Override
+    public void loadNativeAd(MaxAdapterResponseParameters maxAdapterResponseParameters,
+                             Activity activity,
+                             MaxNativeAdAdapterListener maxNativeAdAdapterListener) {
+        // the deadline of the native ad assets download is counted from the AppLovin MAX request
+        long nativeAdLoadDeadline = SystemClock.elapsedRealtime() + nativeAssetLoadTimeout;
+
+        long loadStartTime = System.nanoTime();
+        List<SASAdPlacement> adPlacements = convertToAdPlacements(maxAdapterResponseParameters.getThirdPartyAdPlacementId());
+
+        if (adPlacements == null) {
+            Log.e(mediationTag(), "The PlacementId found is not a valid Equativ placement. This placement should be formatted like: <site id>/<page id>/<format id>[/<targeting string> (optional)] (ex: 123/456/789/targetingString or 123/456/789), several placements being separated by '|' (ex: 123/456/789|123/456/790). The invalid found PlacementId string: " + maxAdapterResponseParameters.getThirdPartyAdPlacementId());
+            maxNativeAdAdapterListener.onNativeAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
+            return;
+        }
+
+        if (isBidResponse(maxAdapterResponseParameters)) {
+            maxNativeAdAdapterListener.onNativeAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
+            return;
+        }
+
+        // the parsing is attributed to the first placement of the list
+        getLoadMetrics(FORMAT_NATIVE, adPlacements.get(0)).record(LoadStage.PLACEMENT_PARSING, loadStartTime);
+
+        // Configure Equativ Display SDK
+        configureSdkIfNeeded(activity);
+
+        setNativeAssetDiskCacheContext(activity);
+
+        runOnMainThread(() -> {
+            // Clean up if needed
+            if (nativeAdRace != null) {
+                nativeAdRace.cancel();
+                nativeAdRace = null;
+            }
+
+            if (nativeAssetsLoader != null) {
+                nativeAssetsLoader.cancel();
+                nativeAssetsLoader = null;
+            }
+
+            // the native ad view of a previous load cancelled while its assets were downloading was never delivered
+            destroyNativeAd(equativMaxNativeAd, nativeAdView);
+            equativMaxNativeAd = null;
+            nativeAdView = null;
+
+            if (nativeAdBatchSize > 0) {
+                for (SASAdPlacement adPlacement : adPlacements) {
+                    QueuedNativeAd queuedNativeAd = nativeAdQueue.take(adPlacement);
+
+                    if (queuedNativeAd != null && queuedNativeAd.nativeAdAssets != null) {
+                        // the consumed native ad is replaced in the background
+                        nativeAdQueue.fill(activity, adPlacement);
+
+                        nativeAdView = queuedNativeAd.nativeAdView;
+                        nativeAdView.setNativeAdListener(createDeliveredNativeAdListener(maxNativeAdAdapterListener));
+                        deliverNativeAd(queuedNativeAd.nativeAdView, queuedNativeAd.nativeAdAssets, queuedNativeAd.iconBitmap,
+                                queuedNativeAd.createCoverImageView(activity), activity, maxNativeAdAdapterListener);
+                        queuedNativeAd.releaseImages();
+                        return;
+                    }
+                }
+            }
+
+            nativeAdRace = new PlacementRace<SASNativeAdView>(adPlacements, placementRaceConcurrency) {
+
+                @NonNull
+                @Override
+                SASNativeAdView createLoader(@NonNull SASAdPlacement adPlacement) {
+                    return trackLiveObject(new SASNativeAdView(activity));
+                }
+
+                @Override
+                void startLoad(@NonNull SASNativeAdView loader, @NonNull SASAdPlacement adPlacement) {
+                    loadNativePlacement(this, loader, adPlacement, nativeAdLoadDeadline, activity, maxNativeAdAdapterListener);
+                }
+
+                @Override
+                void cancelLoad(@NonNull SASNativeAdView loader) {
+                    loader.onDestroy();
+                }
+
+                @Override
+                void onAllLoadsFailed(@NonNull MaxAdapterError error) {
+                    maxNativeAdAdapterListener.onNativeAdLoadFailed(error);
+                }
+
+                @Override
+                void onFinished(@NonNull List<SASAdPlacement> startedPlacements) {
+                    // after a miss, only the requested placements are refilled, once the live load completed
+                    if (nativeAdBatchSize > 0) {
+                        for (SASAdPlacement adPlacement : startedPlacements) {
+                            nativeAdQueue.fill(activity, adPlacement);
+                        }
+                    }
+                }
+            };
+            nativeAdRace.start();
+        });
+    }
+
+    /**
+     * Load one placement of a native ad placement list. Must be called from the main thread.
+     */
+    private void loadNativePlacement(@NonNull PlacementRace<SASNativeAdView> race,
+                                     @NonNull SASNativeAdView loadingNativeAdView,
+                                     @NonNull SASAdPlacement adPlacement,
+                                     long nativeAdLoadDeadline,
+                                     @NonNull Activity activity,
+                                     @NonNull MaxNativeAdAdapterListener maxNativeAdAdapterListener) {
+        LoadMetrics metrics = getLoadMetrics(FORMAT_NATIVE, adPlacement);
+
+        LoadTimeout loadTimeout = startLoadTimeout(metrics, () -> {
+            if (race.isRunning(loadingNativeAdView)) {
+                loadingNativeAdView.onDestroy();
+                race.onLoadFailed(loadingNativeAdView, MaxAdapterError.TIMEOUT);
+            }
+        });
+
+        long sdkLoadStartTime = System.nanoTime();
+
+        loadingNativeAdView.setNativeAdListener(new SASNativeAdView.NativeAdListener() {
+            @Override
+            public void onNativeAdLoaded(@NonNull SASAdInfo adInfo, @NonNull SASNativeAdAssets nativeAdAssets) {
+                long callbackTime = System.nanoTime();
+                metrics.record(LoadStage.SDK_LOAD, sdkLoadStartTime);
+                recordLoadSuccess(metrics.placement);
+                if (!completeLoad(loadTimeout)) {
+                    return;
+                }
+
+                runOnMainThread(() -> {
+                    if (race.onLoadSucceeded(loadingNativeAdView)) {
+                        nativeAdView = loadingNativeAdView;
+                        loadNativeAdAssets(loadingNativeAdView, nativeAdAssets, metrics, callbackTime, nativeAdLoadDeadline, activity, maxNativeAdAdapterListener);
+                    }
+                });
+            }
+
+            @Override
+            public void onNativeAdFailedToLoad(@NonNull SASException e) {
+                metrics.record(LoadStage.SDK_LOAD, sdkLoadStartTime);
+                recordLoadFailure(metrics.placement, e);
+                if (!completeLoad(loadTimeout)) {
+                    return;
+                }
+
+                runOnMainThread(() -> race.onLoadFailed(loadingNativeAdView, toMaxAdapterError(e)));
+            }
+
+            @Override
+            public void onNativeAdClicked() {
+                maxNativeAdAdapterListener.onNativeAdClicked();
+            }
+
+            @Override
+            public void onNativeAdRequestClose() {
+                // not supported by Applovin
+            }
+
+            @Nullable
+            @Override
+            public SASNativeAdViewBinder onNativeAdViewBinderRequested(@NonNull SASNativeAdAssets sasNativeAdAssets) {
+                return null;
+            }
+        });
+
+        loadingNativeAdView.loadAd(adPlacement);
+    }
+
+    /**
+     * Download the images of a loaded native ad, then deliver it to AppLovin MAX.
+     */
+    private void loadNativeAdAssets(@NonNull SASNativeAdView loadedNativeAdView,
+                                    @NonNull SASNativeAdAssets nativeAdAssets,
+                                    @NonNull LoadMetrics metrics,
+                                    long callbackTime,
+                                    long nativeAdLoadDeadline,
+                                    @NonNull Activity activity,
+                                    @NonNull MaxNativeAdAdapterListener maxNativeAdAdapterListener) {
+        boolean progressiveDelivery = nativeProgressiveDeliveryEnabled;
+
+        // media view of a native ad delivered before its cover was loaded, only accessed from the main thread
+        AtomicReference<NativeCoverImageView> coverPlaceholder = new AtomicReference<>();
+
+        // the assets loader drops its listener once finished, when cancelled or at its deadline at the latest, and the
+        // listener only reads the activity through this reference
+        WeakReference<Activity> activityReference = new WeakReference<>(activity);
+
+        // icon and cover are downloaded in parallel, out of the main thread, on the shared native asset executor
+        NativeAssetsLoader assetsLoader = new NativeAssetsLoader(
+                NativeImageSpec.fromViewAsset(nativeAdAssets.getIconImage()),
+                NativeImageSpec.fromViewAsset(nativeAdAssets.getMainView()),
+                nativeAdLoadDeadline,
+                mainLooperHandler,
+                loader -> {
+                    metrics.record(progressiveDelivery ? LoadStage.NATIVE_COVER : LoadStage.NATIVE_ASSETS, callbackTime);
+                    long postTime = System.nanoTime();
+                    mainLooperHandler.post(() -> {
+                        try {
+                            metrics.record(LoadStage.MAIN_THREAD_DISPATCH, postTime);
+
+                            if (loader.isCancelled()) {
+                                return;
+                            }
+
+                            if (nativeAssetsLoader == loader) {
+                                nativeAssetsLoader = null;
+                            }
+
+                            NativeCoverImageView coverImageView = coverPlaceholder.get();
+                            if (coverImageView != null) {
+                                // the native ad was already delivered, a missing cover leaves the placeholder empty
+                                setCoverImage(coverImageView, loader);
+                                return;
+                            }
+
+                            if (loader.isRejected()) {
+                                Log.e(mediationTag(), "The native ad assets download was rejected by the native asset executor (queue depth: " + getNativeAssetQueueDepth() + ").");
+                                maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.INTERNAL_ERROR);
+                                return;
+                            }
+
+                            if (loader.isTimedOut() && nativeAssetTimeoutPolicy == NativeAssetTimeoutPolicy.FAIL) {
+                                Log.e(mediationTag(), "The native ad assets could not be downloaded before the native ad load timeout.");
+                                maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.TIMEOUT);
+                                return;
+                            }
+
+                            Activity currentActivity = activityReference.get();
+                            if (currentActivity == null || currentActivity.isFinishing()) {
+                                Log.e(mediationTag(), "The activity of the native ad was destroyed while its assets were downloaded.");
+                                maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.UNSPECIFIED);
+                                return;
+                            }
+
+                            // measured from the post, as the time until then is measured by the native asset stages
+                            metrics.record(LoadStage.LISTENER_DISPATCH, postTime);
+                            deliverNativeAd(loadedNativeAdView, nativeAdAssets, loader.getIconBitmap(),
+                                    createCoverImageView(currentActivity, loader), currentActivity, maxNativeAdAdapterListener);
+                        } finally {
+                            // the delivered native ad and its cover image view hold their own references to the images
+                            loader.releaseImages();
+                        }
+                    });
+                });
+
+        assetsLoader.setCoverDecodeDeferred(nativeCoverLazyDecodeEnabled);
+
+        if (progressiveDelivery) {
+            // the native ad is delivered with its texts and icon, the cover is set in the placeholder once loaded
+            assetsLoader.setIconListener(loader -> {
+                metrics.record(LoadStage.NATIVE_ASSETS, callbackTime);
+                long postTime = System.nanoTime();
+                mainLooperHandler.post(() -> {
+                    // a finished load is delivered by the listener of the loader, with or without the cover
+                    if (loader.isFinished()) {
+                        return;
+                    }
+
+                    // the final listener of the loader reports a destroyed activity
+                    Activity currentActivity = activityReference.get();
+                    if (currentActivity == null || currentActivity.isFinishing()) {
+                        return;
+                    }
+
+                    NativeCoverImageView coverImageView = new NativeCoverImageView(currentActivity);
+                    coverPlaceholder.set(coverImageView);
+
+                    metrics.record(LoadStage.LISTENER_DISPATCH, postTime);
+                    deliverNativeAd(loadedNativeAdView, nativeAdAssets, loader.getIconBitmap(), coverImageView, currentActivity, maxNativeAdAdapterListener);
+                });
+            });
+        }
+
+        EquativMediationAdapter.this.nativeAssetsLoader = assetsLoader;
+        assetsLoader.start();
+    }
+
+    /**
+     * @return an image view displaying the cover loaded by the given loader, or null if it could not be loaded.
+     */
+    @Nullable
+    private static NativeCoverImageView createCoverImageView(@NonNull Activity activity, @NonNull NativeAssetsLoader loader) {
+        if (!loader.isCoverDecodeDeferred()) {
+            return createCoverImageView(activity, loader.getCoverBitmap());
+        }
+
+        if (loader.getCoverData() == null) {
+            return null;
+        }
+
+        NativeCoverImageView coverImageView = new NativeCoverImageView(activity);
+        setCoverImage(coverImageView, loader);
+        return coverImageView;
+    }
+
+    /**
+     * Display the cover loaded by the given loader in the given image view, if it could be loaded.
+     */
+    private static void setCoverImage(@NonNull NativeCoverImageView coverImageView, @NonNull NativeAssetsLoader loader) {
+        byte[] coverData = loader.getCoverData();
+        String coverUrl = loader.getCoverUrl();
+        if (coverData != null && coverUrl != null) {
+            coverImageView.setImageData(coverUrl, coverData);
+        } else if (loader.getCoverBitmap() != null) {
+            coverImageView.setCoverBitmap(loader.getCoverBitmap());
+        }
+    }
+
+    /**
+     * @return an image view displaying the given cover image, or null if there is no cover image.
+     */
+    @Nullable
+    private static NativeCoverImageView createCoverImageView(@NonNull Activity activity, @Nullable Bitmap coverBitmap) {
+        if (coverBitmap == null) {
+            return null;
+        }
+
+        NativeCoverImageView coverImageView = new NativeCoverImageView(activity);
+        coverImageView.setCoverBitmap(coverBitmap);
+        return coverImageView;
+    }
+
+    /**
+     * Destroy a native ad view, delivered or not, and release the images of the delivered native ad. Must be called
+     * from the main thread, which draws these images.
+     */
+    private static void destroyNativeAd(@Nullable EquativMaxNativeAd deliveredNativeAd, @Nullable SASNativeAdView nativeAdView) {
+        if (deliveredNativeAd != null) {
+            // destroys the native ad view delivered to AppLovin MAX
+            deliveredNativeAd.unregisterView();
+        }
+
+        if (nativeAdView != null && (deliveredNativeAd == null || nativeAdView != deliveredNativeAd.nativeAdView)) {
+            nativeAdView.onDestroy();
+        }
+    }
+
+    /**
+     * Build the AppLovin MAX native ad from a loaded native ad and its images, and deliver it.
+     */
+    private void deliverNativeAd(@NonNull SASNativeAdView loadedNativeAdView,
+                                 @NonNull SASNativeAdAssets nativeAdAssets,
+                                 @Nullable Bitmap iconBitmap,
+                                 @Nullable NativeCoverImageView coverImageView,
+                                 @NonNull Activity activity,
+                                 @NonNull MaxNativeAdAdapterListener maxNativeAdAdapterListener) {
+        MaxNativeAd.MaxNativeAdImage iconImage = null;
+        Drawable iconDrawable = null;
+        if (iconBitmap != null) {
+            recordNativeImageHeapBytes(NativeImageKind.ICON, iconBitmap);
+            iconDrawable = new BitmapDrawable(activity.getResources(), iconBitmap);
+            iconImage = new MaxNativeAd.MaxNativeAdImage(iconDrawable);
+        }
+
+        MaxNativeAd.Builder maxNativeAdBuilder = new MaxNativeAd.Builder()
+                .setTitle(nativeAdAssets.getTitle())
+                .setBody(nativeAdAssets.getBody())
+                .setCallToAction(nativeAdAssets.getCallToAction())
+                .setStarRating(nativeAdAssets.getRating())
+                .setIcon(iconImage)
+                .setMediaView(coverImageView);
+
+        equativMaxNativeAd = new EquativMaxNativeAd(maxNativeAdBuilder, loadedNativeAdView, iconBitmap, iconDrawable, coverImageView, maxNativeAdAdapterListener);
+        maxNativeAdAdapterListener.onNativeAdLoaded(equativMaxNativeAd, null);
+    }
+
+    /**
+     * @return the listener of a native ad loaded in advance, once delivered to AppLovin MAX.
+     */
+    @NonNull
+    private static SASNativeAdView.NativeAdListener createDeliveredNativeAdListener(@NonNull MaxNativeAdAdapterListener maxNativeAdAdapterListener) {
+        return new SASNativeAdView.NativeAdListener() {
+            @Override
+            public void onNativeAdLoaded(@NonNull SASAdInfo adInfo, @NonNull SASNativeAdAssets nativeAdAssets) {
+                // the native ad is already loaded
+            }
+
+            @Override
+            public void onNativeAdFailedToLoad(@NonNull SASException e) {
+                // the native ad is already loaded
+            }
+
+            @Override
+            public void onNativeAdClicked() {
+                maxNativeAdAdapterListener.onNativeAdClicked();
+            }
+
+            @Override
+            public void onNativeAdRequestClose() {
+                // not supported by Applovin
+            }
+
+            @Nullable
+            @Override
+            public SASNativeAdViewBinder onNativeAdViewBinderRequested(@NonNull SASNativeAdAssets sasNativeAdAssets) {
+                return null;
+            }
+        };
+    }
+
+    /// Native ad batch queue
+
+    /**
+     * Enable the native ad batch mode, shared by all adapter instances. When a native ad of a placement is
+     * requested, the adapter also loads, in parallel, native ads with their images until the given number of
+     * native ads is ready or loading for this placement, and the next native ad requests of this placement are
+     * answered from this queue. Queued native ads are discarded after their time to live, when their activity
+     * is finishing, and when the system runs low on memory.
+     *
+     * @param batchSize The number of native ads loaded in advance for each placement, 0 to disable the batch mode (default).
+     * @param readyTimeToLive The time in milliseconds a native ad can wait in the queue once loaded, after which it is discarded.
+     */
+    public static void setNativeAdBatchConfiguration(int batchSize, long readyTimeToLive) {
+        nativeAdBatchSize = Math.max(0, batchSize);
+        nativeAdBatchTimeToLive = Math.max(0, readyTimeToLive);
+    }
+
+    /**
+     * Enable the prefetch of the native ad batch queue during main thread idle time. Instead of being loaded as soon
+     * as a native ad is requested or consumed, the missing native ads of the queue are then loaded one at a time,
+     * each time the main thread has no pending work, so that prefetching never delays the rendering of a frame.
+     * Requires the native ad batch mode, see {@link #setNativeAdBatchConfiguration(int, long)}.
+     *
+     * @param enabled true to refill the native ad queue during main thread idle time (disabled by default).
+     */
+    public static void setNativeAdPrefetchEnabled(boolean enabled) {
+        nativeAdPrefetchEnabled = enabled;
+    }
+
+    /**
+     * @return the number of native ad requests answered with a ready native ad from the batch queue.
+     */
+    public static long getNativeAdQueueHitCount() {
+        return nativeAdQueue.hitCount.get();
+    }
+
+    /**
+     * @return the number of native ad requests for which no ready native ad was available in the batch queue.
+     */
+    public static long getNativeAdQueueMissCount() {
+        return nativeAdQueue.missCount.get();
+    }
+
+    /**
+     * @return the number of queued native ads discarded because they stayed too long in the queue or because memory was low.
+     */
+    public static long getNativeAdQueueDiscardedCount() {
+        return nativeAdQueue.discardedCount.get();
+    }
+
+    /**
+     * Queue of native ads loaded in advance with their images, by placement. It is only accessed from the main thread.
+     */
+    private static class NativeAdQueue implements MessageQueue.IdleHandler {
+
+        @NonNull
+        private final Map<String, List<QueuedNativeAd>> queuedNativeAds = new HashMap<>();
+
+        // placements waiting for main thread idle time to be refilled, by placement key
+        @NonNull
+        private final Map<String, PendingNativeAdFill> pendingFills = new LinkedHashMap<>();
+
+        private boolean idleHandlerAdded = false;
+
+        @NonNull
+        private final Handler mainLooperHandler = new Handler(Looper.getMainLooper());
+
+        @NonNull
+        private final AtomicLong hitCount = new AtomicLong();
+
+        @NonNull
+        private final AtomicLong missCount = new AtomicLong();
+
+        @NonNull
+        private final AtomicLong discardedCount = new AtomicLong();
+
+        /**
+         * Remove a ready native ad from the queue, discarding the expired ones on the way.
+         *
+         * @return a ready native ad, or null if none is available for this placement.
+         */
+        @Nullable
+        private QueuedNativeAd take(@NonNull SASAdPlacement adPlacement) {
+            List<QueuedNativeAd> nativeAds = queuedNativeAds.get(placementKey(adPlacement));
+            if (nativeAds != null) {
+                long now = SystemClock.elapsedRealtime();
+                Iterator<QueuedNativeAd> iterator = nativeAds.iterator();
+                while (iterator.hasNext()) {
+                    QueuedNativeAd nativeAd = iterator.next();
+                    if (!nativeAd.isReady()) {
+                        continue;
+                    }
+
+                    iterator.remove();
+
+                    if (now - nativeAd.readyTime > nativeAdBatchTimeToLive || nativeAd.isActivityGone()) {
+                        discardedCount.incrementAndGet();
+                        nativeAd.discard();
+                        continue;
+                    }
+
+                    hitCount.incrementAndGet();
+                    return nativeAd;
+                }
+            }
+
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        /**
+         * Start loading native ads until the queue holds the configured number of loading or ready native ads
+         * for this placement.
+         */
+        private void fill(@NonNull Activity activity, @NonNull SASAdPlacement adPlacement) {
+            if (nativeAdPrefetchEnabled) {
+                pendingFills.put(placementKey(adPlacement), new PendingNativeAdFill(activity, adPlacement));
+                if (!idleHandlerAdded) {
+                    idleHandlerAdded = true;
+                    Looper.myQueue().addIdleHandler(this);
+                }
+                return;
+            }
+
+            startLoads(activity, adPlacement, nativeAdBatchSize);
+        }
+
+        /**
+         * Start at most the given number of native ad loads for this placement, without exceeding the configured
+         * number of loading or ready native ads.
+         *
+         * @return true if the queue of this placement is still not full, false if it is full or fails fast.
+         */
+        private boolean startLoads(@NonNull Activity activity, @NonNull SASAdPlacement adPlacement, int maxLoadCount) {
+            String key = placementKey(adPlacement);
+            if (isBlocked(key)) {
+                // a backed off or failing placement is not refilled, the next request for it fills it again
+                return false;
+            }
+
+            List<QueuedNativeAd> nativeAds = queuedNativeAds.get(key);
+            if (nativeAds == null) {
+                nativeAds = new ArrayList<>();
+                queuedNativeAds.put(key, nativeAds);
+            }
+
+            for (int i = 0; i < maxLoadCount && nativeAds.size() < nativeAdBatchSize; i++) {
+                if (!allowCircuitRequest(key)) {
+                    // no probe left for this half-open circuit
+                    return false;
+                }
+                QueuedNativeAd nativeAd = new QueuedNativeAd(activity, adPlacement, nativeAds, mainLooperHandler);
+                nativeAds.add(nativeAd);
+                nativeAd.nativeAdView.loadAd(adPlacement);
+            }
+            return nativeAds.size() < nativeAdBatchSize;
+        }
+
+        @Override
+        public boolean queueIdle() {
+            Iterator<PendingNativeAdFill> iterator = pendingFills.values().iterator();
+            if (iterator.hasNext()) {
+                PendingNativeAdFill pendingFill = iterator.next();
+                Activity activity = pendingFill.activityReference.get();
+
+                // a single native ad load per idle pass, the next one waits for the next idle pass
+                if (activity == null || activity.isFinishing() || !startLoads(activity, pendingFill.adPlacement, 1)) {
+                    iterator.remove();
+                }
+            }
+
+            // the idle handler stays registered while placements are waiting to be refilled
+            idleHandlerAdded = !pendingFills.isEmpty();
+            return idleHandlerAdded;
+        }
+
+        /**
+         * Discard all the queued native ads, including the loading ones, from the second trim stage: the queue
+         * survives the UI being hidden, but not the system running low on memory.
+         */
+        private void trimMemory(int trimStage, @NonNull TrimResult result) {
+            if (trimStage < TRIM_STAGE_PRELOADED) {
+                return;
+            }
+
+            pendingFills.clear();
+
+            for (List<QueuedNativeAd> nativeAds : queuedNativeAds.values()) {
+                for (QueuedNativeAd nativeAd : nativeAds) {
+                    result.releasedBytes += nativeAd.getImageByteCount();
+                    result.releasedAdCount++;
+                    nativeAd.discard();
+                    discardedCount.incrementAndGet();
+                }
+                nativeAds.clear();
+            }
+        }
+    }
+
+    /**
+     * Refill of the native ad queue of a placement, waiting for main thread idle time.
+     */
+    private static class PendingNativeAdFill {
+
+        @NonNull
+        private final WeakReference<Activity> activityReference;
+
+        @NonNull
+        private final SASAdPlacement adPlacement;
+
+        public PendingNativeAdFill(@NonNull Activity activity, @NonNull SASAdPlacement adPlacement) {
+            this.activityReference = new WeakReference<>(activity);
+            this.adPlacement = adPlacement;
+        }
+    }
+
+    /**
+     * Native ad of the batch queue, loaded with its images.
+     */
+    private static class QueuedNativeAd implements SASNativeAdView.NativeAdListener {
+
+        @NonNull
+        private final SASNativeAdView nativeAdView;
+
+        @NonNull
+        private final WeakReference<Activity> activityReference;
+
+        @NonNull
+        private final LoadMetrics metrics;
+
+        // the queue list this native ad belongs to
+        @NonNull
+        private final List<QueuedNativeAd> nativeAds;
+
+        @NonNull
+        private final Handler mainLooperHandler;
+
+        private final long sdkLoadStartTime = System.nanoTime();
+
+        @Nullable
+        private NativeAssetsLoader assetsLoader = null;
+
+        @Nullable
+        private SASNativeAdAssets nativeAdAssets = null;
+
+        @Nullable
+        private Bitmap iconBitmap = null;
+
+        @Nullable
+        private Bitmap coverBitmap = null;
+
+        // encoded cover, when its decoding is deferred to the view displaying it
+        @Nullable
+        private String coverUrl = null;
+
+        @Nullable
+        private byte[] coverData = null;
+
+        // elapsed realtime at which the native ad and its images were loaded, 0 while loading
+        private long readyTime = 0;
+
+        public QueuedNativeAd(@NonNull Activity activity,
+                              @NonNull SASAdPlacement adPlacement,
+                              @NonNull List<QueuedNativeAd> nativeAds,
+                              @NonNull Handler mainLooperHandler) {
+            this.nativeAdView = trackLiveObject(new SASNativeAdView(activity));
+            this.activityReference = new WeakReference<>(activity);
+            this.metrics = getLoadMetrics(FORMAT_NATIVE, adPlacement);
+            this.nativeAds = nativeAds;
+            this.mainLooperHandler = mainLooperHandler;
+            this.nativeAdView.setNativeAdListener(this);
+        }
+
+        private boolean isReady() {
+            return readyTime > 0;
+        }
+
+        private boolean isActivityGone() {
+            Activity activity = activityReference.get();
+            return activity == null || activity.isFinishing();
+        }
+
+        private void discard() {
+            if (assetsLoader != null) {
+                assetsLoader.cancel();
+                assetsLoader = null;
+            }
+            nativeAdView.onDestroy();
+            releaseImages();
+        }
+
+        private long getImageByteCount() {
+            return (iconBitmap != null ? iconBitmap.getAllocationByteCount() : 0)
+                    + (coverBitmap != null ? coverBitmap.getAllocationByteCount() : 0)
+                    + (coverData != null ? coverData.length : 0);
+        }
+
+        /**
+         * @return an image view displaying the cover of this native ad, decoded at the size of the view when its
+         * decoding is deferred, or null if there is no cover image.
+         */
+        @Nullable
+        private NativeCoverImageView createCoverImageView(@NonNull Activity activity) {
+            if (coverUrl == null || coverData == null) {
+                return EquativMediationAdapter.createCoverImageView(activity, coverBitmap);
+            }
+
+            NativeCoverImageView coverImageView = new NativeCoverImageView(activity);
+            coverImageView.setImageData(coverUrl, coverData);
+            return coverImageView;
+        }
+
+        /**
+         * Release the images of this native ad, once delivered or discarded, so that their bitmaps can be reused.
+         */
+        private void releaseImages() {
+            nativeBitmapPool.release(iconBitmap);
+            nativeBitmapPool.release(coverBitmap);
+            iconBitmap = null;
+            coverBitmap = null;
+            coverUrl = null;
+            coverData = null;
+        }
+
+        @Override
+        public void onNativeAdLoaded(@NonNull SASAdInfo adInfo, @NonNull SASNativeAdAssets nativeAdAssets) {
+            long callbackTime = System.nanoTime();
+            metrics.record(LoadStage.SDK_LOAD, sdkLoadStartTime);
+            recordLoadSuccess(metrics.placement);
+
+            // the images of the queued native ads share the native asset executor and the image caches
+            NativeAssetsLoader loader = new NativeAssetsLoader(
+                    NativeImageSpec.fromViewAsset(nativeAdAssets.getIconImage()),
+                    NativeImageSpec.fromViewAsset(nativeAdAssets.getMainView()),
+                    SystemClock.elapsedRealtime() + nativeAssetLoadTimeout,
+                    mainLooperHandler,
+                    finishedLoader -> {
+                        metrics.record(LoadStage.NATIVE_ASSETS, callbackTime);
+                        mainLooperHandler.post(() -> onAssetsLoaded(finishedLoader, nativeAdAssets));
+                    });
+            loader.setCoverDecodeDeferred(nativeCoverLazyDecodeEnabled);
+
+            mainLooperHandler.post(() -> {
+                // the native ad may have been discarded by a memory trim in the meantime
+                if (nativeAds.contains(this)) {
+                    assetsLoader = loader;
+                    loader.start();
+                }
+            });
+        }
+
+        private void onAssetsLoaded(@NonNull NativeAssetsLoader loader, @NonNull SASNativeAdAssets nativeAdAssets) {
+            if (loader.isCancelled()) {
+                loader.releaseImages();
+                return;
+            }
+
+            assetsLoader = null;
+
+            if (loader.isRejected() || (loader.isTimedOut() && nativeAssetTimeoutPolicy == NativeAssetTimeoutPolicy.FAIL)) {
+                // the failed slot is refilled at the next request for this placement
+                nativeAds.remove(this);
+                nativeAdView.onDestroy();
+                loader.releaseImages();
+                return;
+            }
+
+            // the references of the loader to its images are handed over to this native ad
+            this.nativeAdAssets = nativeAdAssets;
+            this.iconBitmap = loader.getIconBitmap();
+            this.coverBitmap = loader.getCoverBitmap();
+            this.coverUrl = loader.getCoverUrl();
+            this.coverData = loader.getCoverData();
+            this.readyTime = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void onNativeAdFailedToLoad(@NonNull SASException e) {
+            metrics.record(LoadStage.SDK_LOAD, sdkLoadStartTime);
+            recordLoadFailure(metrics.placement, e);
+
+            // the failed slot is refilled at the next request for this placement
+            mainLooperHandler.post(() -> {
+                if (nativeAds.remove(this)) {
+                    nativeAdView.onDestroy();
+                }
+            });
+        }
+
+        @Override
+        public void onNativeAdClicked() {
+            // the listener is replaced before the native ad is delivered
+        }
+
+        @Override
+        public void onNativeAdRequestClose() {
+            // not supported by Applovin
+        }
+
+        @Nullable
+        @Override
+        public SASNativeAdViewBinder onNativeAdViewBinderRequested(@NonNull SASNativeAdAssets sasNativeAdAssets) {
+            return null;
+        }
+    }
+
+    /// Memory trimming
+
+    // first trim stage: the idle banner views and unused bitmaps are released, and the image cache is halved
+    private static final int TRIM_STAGE_IDLE = 1;
+
+    // second trim stage: the preloaded ads and all the cached images are released as well
+    private static final int TRIM_STAGE_PRELOADED = 2;
+
+    /**
+     * @return the bytes of native ad images released by the adapter when the system asked it to trim its memory with
+     * the given {@link ComponentCallbacks2} level, since the process started. The memory of the released banner views,
+     * interstitials and native ads held by the Equativ Display SDK is not measured, see {@link #getTrimMemoryReleasedAdCount(int)}.
+     * Low memory notifications are counted as {@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE}.
+     */
+    public static long getTrimMemoryReleasedBytes(int level) {
+        AtomicLong releasedBytes = memoryTrimRegistry.releasedBytes.get(level);
+        return releasedBytes != null ? releasedBytes.get() : 0;
+    }
+
+    /**
+     * @return the number of idle banner views and preloaded interstitials and native ads destroyed by the adapter when
+     * the system asked it to trim its memory with the given {@link ComponentCallbacks2} level, since the process started.
+     */
+    public static long getTrimMemoryReleasedAdCount(int level) {
+        AtomicLong releasedAdCount = memoryTrimRegistry.releasedAdCounts.get(level);
+        return releasedAdCount != null ? releasedAdCount.get() : 0;
+    }
+
+    /**
+     * Resource shared by the adapter instances that can be released under memory pressure.
+     */
+    private interface TrimmableResource {
+
+        /**
+         * Release what this resource holds at the given trim stage and the stages below it, and add it to the result.
+         */
+        void trimMemory(int trimStage, @NonNull TrimResult result);
+    }
+
+    private static class TrimResult {
+
+        private long releasedBytes = 0;
+
+        private long releasedAdCount = 0;
+    }
+
+    /**
+     * Process wide registry of the resources kept by the adapter beyond the ads in use, released in stages when
+     * the system runs low on memory. The ads held by live adapter instances are in use by AppLovin MAX, and are
+     * only released when it destroys them. It is only accessed from the main thread, apart from its statistics.
+     */
+    private static class MemoryTrimRegistry implements ComponentCallbacks2 {
+
+        @NonNull
+        private final List<TrimmableResource> resources = new ArrayList<>();
+
+        @NonNull
+        private final AtomicBoolean registered = new AtomicBoolean(false);
+
+        @NonNull
+        private final ConcurrentHashMap<Integer, AtomicLong> releasedBytes = new ConcurrentHashMap<>();
+
+        @NonNull
+        private final ConcurrentHashMap<Integer, AtomicLong> releasedAdCounts = new ConcurrentHashMap<>();
+
+        public MemoryTrimRegistry() {
+            // the least useful resources are released first
+            resources.add((trimStage, result) -> nativeBitmapPool.trimMemory(trimStage, result));
+            resources.add((trimStage, result) -> bannerViewPool.trimMemory(trimStage, result));
+            resources.add((trimStage, result) -> {
+                NativeImageCache cache = nativeImageCache;
+                if (cache != null) {
+                    cache.trimMemory(trimStage, result);
+                }
+            });
+            resources.add((trimStage, result) -> nativeAdQueue.trimMemory(trimStage, result));
+            resources.add((trimStage, result) -> interstitialPreloadPool.trimMemory(trimStage, result));
+        }
+
+        private void registerIfNeeded(@NonNull Context context) {
+            if (registered.compareAndSet(false, true)) {
+                context.getApplicationContext().registerComponentCallbacks(this);
+            }
+        }
+
+        /**
+         * @return the trim stage for the given {@link ComponentCallbacks2} level, 0 if nothing should be released.
+         */
+        private static int getTrimStage(int level) {
+            if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+                return TRIM_STAGE_PRELOADED;
+            } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+                // running moderate and UI hidden
+                return TRIM_STAGE_IDLE;
+            }
+            return 0;
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+            int trimStage = getTrimStage(level);
+            if (trimStage == 0) {
+                return;
+            }
+
+            TrimResult result = new TrimResult();
+            for (TrimmableResource resource : resources) {
+                resource.trimMemory(trimStage, result);
+            }
+
+            getCounter(releasedBytes, level).addAndGet(result.releasedBytes);
+            getCounter(releasedAdCounts, level).addAndGet(result.releasedAdCount);
+        }
+
+        @NonNull
+        private static AtomicLong getCounter(@NonNull ConcurrentHashMap<Integer, AtomicLong> counters, int level) {
+            AtomicLong counter = counters.get(level);
+            if (counter == null) {
+                AtomicLong newCounter = new AtomicLong();
+                counter = counters.putIfAbsent(level, newCounter);
+                if (counter == null) {
+                    counter = newCounter;
+                }
+            }
+            return counter;
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            // nothing to do
+        }
+    }
+
+    /// Load latency instrumentation
+
+    /**
+     * Stages of an ad load measured by the adapter.
+     */
+    public enum LoadStage {
+
+        /**
+         * Parsing of the PlacementId into an Equativ placement.
+         */
+        PLACEMENT_PARSING,
+
+        /**
+         * Delay between posting work to the main thread and its execution.
+         */
+        MAIN_THREAD_DISPATCH,
+
+        /**
+         * Time between the SDK load call and the SDK loaded or failed callback.
+         */
+        SDK_LOAD,
+
+        /**
+         * Download and decoding of the native ad assets needed to deliver the native ad: all of them, or only
+         * the icon with the progressive delivery.
+         */
+        NATIVE_ASSETS,
+
+        /**
+         * Download and decoding of the native ad assets, until the cover is displayed, with the progressive delivery.
+         */
+        NATIVE_COVER,
+
+        /**
+         * Time between the SDK loaded callback and the call to the AppLovin listener. For native ads, it starts when
+         * the loaded assets are posted to the main thread, so that it does not overlap the native asset stages.
+         */
+        LISTENER_DISPATCH
+    }
+
+    /**
+     * Snapshot of the latency distribution of one load stage, for one ad format and one placement.
+     */
+    public static final class LatencySnapshot {
+
+        /**
+         * The ad format: "banner", "interstitial" or "native".
+         */
+        @NonNull
+        public final String format;
+
+        /**
+         * The placement, formatted as site id/page id/format id/targeting.
+         */
+        @NonNull
+        public final String placement;
+
+        @NonNull
+        public final LoadStage stage;
+
+        /**
+         * The number of recorded values.
+         */
+        public final long count;
+
+        /**
+         * The maximum recorded value, in microseconds.
+         */
+        public final long maxMicros;
+
+        @NonNull
+        private final long[] bucketCounts;
+
+        private LatencySnapshot(@NonNull String format, @NonNull String placement, @NonNull LoadStage stage, @NonNull LatencyHistogram histogram) {
+            this.format = format;
+            this.placement = placement;
+            this.stage = stage;
+            this.bucketCounts = new long[LatencyHistogram.BUCKET_COUNT];
+
+            long totalCount = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                bucketCounts[i] = histogram.bucketCounts.get(i);
+                totalCount += bucketCounts[i];
+            }
+            this.count = totalCount;
+            this.maxMicros = histogram.maxValue.get();
+        }
+
+        /**
+         * @param percentile The percentile to compute, between 0 and 100.
+         * @return the upper bound of the histogram bucket holding the given percentile, in microseconds, 0 if no value was recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            long rank = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * count);
+            long cumulativeCount = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                cumulativeCount += bucketCounts[i];
+                if (cumulativeCount >= rank && cumulativeCount > 0) {
+                    return Math.min(LatencyHistogram.bucketUpperBound(i), maxMicros);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * @return a snapshot of all the load latency histograms recorded by the adapter instances. Reading the
+     * histograms does not block the threads recording them.
+     */
+    @NonNull
+    public static List<LatencySnapshot> getLatencySnapshots() {
+        List<LatencySnapshot> snapshots = new ArrayList<>();
+        for (LoadMetrics metrics : loadMetrics.values()) {
+            for (LoadStage stage : LoadStage.values()) {
+                snapshots.add(new LatencySnapshot(metrics.format, metrics.placement, stage, metrics.histograms[stage.ordinal()]));
+            }
+        }
+        return snapshots;
+    }
+
+    @NonNull
+    private static LoadMetrics getLoadMetrics(@NonNull String format, @NonNull SASAdPlacement adPlacement) {
+        String placement = placementKey(adPlacement);
+        String key = format + "|" + placement;
+        LoadMetrics metrics = loadMetrics.get(key);
+        if (metrics == null) {
+            LoadMetrics newMetrics = new LoadMetrics(format, placement);
+            metrics = loadMetrics.putIfAbsent(key, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Latency histograms of each load stage, for one ad format and one placement.
+     */
+    private static class LoadMetrics {
+
+        @NonNull
+        private final String format;
+
+        @NonNull
+        private final String placement;
+
+        @NonNull
+        private final LatencyHistogram[] histograms = new LatencyHistogram[LoadStage.values().length];
+
+        // SDK loads failed by the adaptive load timeout, their latency being unknown
+        @NonNull
+        private final AtomicLong timedOutLoadCount = new AtomicLong();
+
+        // timeout of the last SDK load failed by the adaptive load timeout, in milliseconds
+        private volatile long lastTimedOutTimeout = 0;
+
+        public LoadMetrics(@NonNull String format, @NonNull String placement) {
+            this.format = format;
+            this.placement = placement;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * Record the time elapsed since the given {@link System#nanoTime()} value for the given stage.
+         */
+        private void record(@NonNull LoadStage stage, long startNanoTime) {
+            histograms[stage.ordinal()].record((System.nanoTime() - startNanoTime) / 1000);
+        }
+    }
+
+    /**
+     * Fixed-size histogram of latencies in microseconds, using logarithmic buckets split in 4 linear
+     * sub-buckets (relative error below 25%). Recording a value is lock-free and does not allocate.
+     */
+    private static class LatencyHistogram {
+
+        private static final int SUB_BUCKET_BITS = 2;
+        private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+        private static final int MAX_EXPONENT = 40;
+        private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+        @NonNull
+        private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+
+        @NonNull
+        private final AtomicLong maxValue = new AtomicLong();
+
+        private void record(long value) {
+            value = Math.max(0, value);
+            bucketCounts.incrementAndGet(bucketIndex(value));
+
+            long currentMax;
+            while (value > (currentMax = maxValue.get()) && !maxValue.compareAndSet(currentMax, value)) {
+                // retry until the max is updated or a bigger value was recorded
+            }
+        }
+
+        private static int bucketIndex(long value) {
+            if (value < SUB_BUCKET_COUNT) {
+                return (int) value;
+            }
+
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+            int shift = exponent - SUB_BUCKET_BITS;
+            int subBucket = (int) Math.min((value >> shift) - SUB_BUCKET_COUNT, SUB_BUCKET_COUNT - 1);
+            return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+        }
+
+        private static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKET_COUNT) {
+                return index;
+            }
+
+            int shift = index / SUB_BUCKET_COUNT - 1;
+            int subBucket = index % SUB_BUCKET_COUNT;
+            return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+        }
+    }
+
+    /// Native asset executor
+
+    /**
+     * Configure the executor shared by all adapter instances to download and decode native ad assets.
+     * If native ads were already loaded, the current executor is shut down once its pending tasks are
+     * done and a new one is created with this configuration.
+     *
+     * @param poolSize The maximum number of threads downloading native ad assets at the same time.
+     * @param queueLimit The maximum number of download tasks waiting for a thread, each native ad submitting one task
+     *                   for its icon and one for its cover. When both the pool and the queue are full, new downloads
+     *                   are rejected: the native ad load fails with an internal error and the rejection is counted,
+     *                   see {@link #getNativeAssetRejectedTaskCount()}.
+     */
+    public static synchronized void configureNativeAssetExecutor(int poolSize, int queueLimit) {
+        nativeAssetPoolSize = Math.max(1, poolSize);
+        nativeAssetQueueLimit = Math.max(1, queueLimit);
+
+        if (nativeAssetExecutor != null) {
+            nativeAssetExecutor.shutdown();
+            nativeAssetExecutor = null;
+        }
+    }
+
+    /**
+     * @return the number of download tasks currently waiting for a native asset executor thread.
+     */
+    public static synchronized int getNativeAssetQueueDepth() {
+        return nativeAssetExecutor != null ? nativeAssetExecutor.getQueue().size() : 0;
+    }
+
+    /**
+     * @return the number of download tasks currently running on the native asset executor.
+     */
+    public static synchronized int getNativeAssetActiveTaskCount() {
+        return nativeAssetExecutor != null ? nativeAssetExecutor.getActiveCount() : 0;
+    }
+
+    /**
+     * @return the number of tasks rejected by the native asset executor because its pool and its queue were full.
+     */
+    public static long getNativeAssetRejectedTaskCount() {
+        return nativeAssetRejectedTaskCount.get();
+    }
+
+    @NonNull
+    private static synchronized ThreadPoolExecutor getNativeAssetExecutor() {
+        if (nativeAssetExecutor == null) {
+            nativeAssetExecutor = new ThreadPoolExecutor(
+                    nativeAssetPoolSize,
+                    nativeAssetPoolSize,
+                    NATIVE_ASSET_THREAD_KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(nativeAssetQueueLimit),
+                    new NativeAssetThreadFactory(),
+                    new NativeAssetRejectionHandler()
+            );
+            nativeAssetExecutor.allowCoreThreadTimeOut(true);
+        }
+        return nativeAssetExecutor;
+    }
+
+    /**
+     * Counts and aborts the tasks rejected by the native asset executor. Submitters handle the abort explicitly,
+     * a rejected task is never run on the submitting thread nor silently dropped.
+     */
+    private static class NativeAssetRejectionHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(@NonNull Runnable runnable, @NonNull ThreadPoolExecutor executor) {
+            nativeAssetRejectedTaskCount.incrementAndGet();
+            throw new RejectedExecutionException("Native asset executor saturated (queue depth: " + executor.getQueue().size() + ")");
+        }
+    }
+
+    private static class NativeAssetThreadFactory implements ThreadFactory {
+
+        @NonNull
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                // keep asset downloads from competing with the UI thread
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "EquativNativeAsset-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /// Native assets loading
+
+    /**
+     * Listener notified of the time spent downloading and decoding the assets of each native ad.
+     * It is called from a native asset executor thread.
+     */
+    public interface NativeAssetTimingListener {
+
+        /**
+         * @param iconLoadTime The time spent downloading and decoding the icon in milliseconds, 0 if the ad has no icon.
+         * @param coverLoadTime The time spent downloading and decoding the cover in milliseconds, 0 if the ad has no cover.
+         * @param totalLoadTime The time elapsed until all the assets of the native ad were available, in milliseconds.
+         */
+        void onNativeAssetsLoaded(long iconLoadTime, long coverLoadTime, long totalLoadTime);
+    }
+
+    /**
+     * Set the listener notified of the time spent loading the assets of each native ad.
+     *
+     * @param listener The listener to notify, or null to stop the notifications.
+     */
+    public static void setNativeAssetTimingListener(@Nullable NativeAssetTimingListener listener) {
+        nativeAssetTimingListener = listener;
+    }
+
+    /**
+     * Policy applied when the assets of a native ad are not loaded before the deadline of the native ad load.
+     */
+    public enum NativeAssetTimeoutPolicy {
+
+        /**
+         * The native ad is delivered without the images that could not be loaded in time.
+         */
+        DELIVER_WITHOUT_MISSING_ASSETS,
+
+        /**
+         * The native ad load fails with a {@link MaxAdapterError#TIMEOUT} error.
+         */
+        FAIL
+    }
+
+    /**
+     * Set the time allowed to load a native ad and its assets, counted from the native ad request made by
+     * AppLovin MAX. Asset downloads still running when this deadline is reached are aborted, and the
+     * native ad is handled according to the {@link NativeAssetTimeoutPolicy}. AppLovin MAX does not pass the
+     * load timeout of its request to the adapters: set a timeout below the one configured for the ad unit so that
+     * the native ad is delivered before AppLovin MAX gives up on it.
+     *
+     * @param timeoutMillis The native ad load timeout in milliseconds, 10 seconds by default.
+     * @param policy The policy applied when assets are still missing once the timeout is reached.
+     */
+    public static void setNativeAssetLoadTimeout(long timeoutMillis, @NonNull NativeAssetTimeoutPolicy policy) {
+        nativeAssetLoadTimeout = Math.max(0, timeoutMillis);
+        nativeAssetTimeoutPolicy = policy;
+    }
+
+    /**
+     * Enable the progressive delivery of native ads: native ads are delivered to AppLovin MAX as soon as their
+     * texts and icon are loaded, with an empty media view in which the cover image is displayed once loaded.
+     * The {@link LoadStage#NATIVE_ASSETS} latency then measures the icon loading only, and the cover loading
+     * is measured by {@link LoadStage#NATIVE_COVER}.
+     *
+     * @param enabled true to deliver native ads before their cover image is loaded (disabled by default).
+     */
+    public static void setNativeProgressiveDeliveryEnabled(boolean enabled) {
+        nativeProgressiveDeliveryEnabled = enabled;
+    }
+
+    /**
+     * Enable the lazy decoding of native ad cover images: covers are only downloaded with the native ad, and
+     * decoded once the media view is laid out, at its actual size instead of the size declared by the creative.
+     * Decoded covers are shared through the native image cache.
+     *
+     * @param enabled true to decode native ad covers at the size of their media view (disabled by default).
+     */
+    public static void setNativeCoverLazyDecodeEnabled(boolean enabled) {
+        nativeCoverLazyDecodeEnabled = enabled;
+    }
+
+    /**
+     * Describes a native ad image to download and the size it should be scaled to.
+     */
+    private static class NativeImageSpec {
+
+        @NonNull
+        private final String url;
+
+        private final int targetWidth;
+
+        private final int targetHeight;
+
+        public NativeImageSpec(@NonNull String url, int targetWidth, int targetHeight) {
+            this.url = url;
+            this.targetWidth = targetWidth;
+            this.targetHeight = targetHeight;
+        }
+
+        @Nullable
+        private static NativeImageSpec fromViewAsset(@Nullable SASNativeAdAssets.ViewAsset viewAsset) {
+            if (viewAsset == null || viewAsset.getUrl() == null || viewAsset.getUrl().isEmpty()) {
+                return null;
+            }
+
+            return new NativeImageSpec(
+                    viewAsset.getUrl(),
+                    viewAsset.getWidth() == null ? 0 : viewAsset.getWidth(),
+                    viewAsset.getHeight() == null ? 0 : viewAsset.getHeight());
+        }
+    }
+
+    /**
+     * Downloads the icon and the cover of a native ad in parallel on the native asset executor, and
+     * notifies its listener once both of them are available, the deadline of the load is reached or
+     * the load is cancelled. The listener is always called exactly once.
+     */
+    private static class NativeAssetsLoader {
+
+        private interface Listener {
+            void onNativeAssetsLoaded(@NonNull NativeAssetsLoader loader);
+        }
+
+        @Nullable
+        private final NativeImageSpec iconSpec;
+
+        @Nullable
+        private final NativeImageSpec coverSpec;
+
+        // elapsed realtime after which in-flight downloads are aborted
+        private final long deadline;
+
+        @NonNull
+        private final Handler deadlineHandler;
+
+        // cleared once notified, so that a finished loader still referenced by the native asset executor or the
+        // creative HTTP client no longer retains the native ad, the adapter or the activity captured by the listener
+        @Nullable
+        private volatile Listener listener;
+
+        // notified once the icon is loaded, unless the load is already finished
+        @Nullable
+        private volatile Listener iconListener = null;
+
+        // true to only download the cover, its decoding being done at the size of the view displaying it
+        private volatile boolean coverDecodeDeferred = false;
+
+        @NonNull
+        private final AtomicInteger pendingAssetCount = new AtomicInteger(2);
+
+        @NonNull
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        @NonNull
+        private final Runnable deadlineRunnable = () -> finish(true, false);
+
+        // guarded by this
+        @NonNull
+        private final List<Future<?>> assetTasks = new ArrayList<>();
+
+        // guarded by this
+        @NonNull
+        private final Set<URLConnection> connections = new HashSet<>();
+
+        private long startTime = 0;
+
+        @Nullable
+        private volatile Bitmap iconBitmap = null;
+
+        @Nullable
+        private volatile Bitmap coverBitmap = null;
+
+        @Nullable
+        private volatile byte[] coverData = null;
+
+        private volatile long iconLoadTime = 0;
+
+        private volatile long coverLoadTime = 0;
+
+        private volatile boolean rejected = false;
+
+        private volatile boolean timedOut = false;
+
+        private volatile boolean cancelled = false;
+
+        public NativeAssetsLoader(@Nullable NativeImageSpec iconSpec,
+                                  @Nullable NativeImageSpec coverSpec,
+                                  long deadline,
+                                  @NonNull Handler deadlineHandler,
+                                  @NonNull Listener listener) {
+            this.iconSpec = iconSpec;
+            this.coverSpec = coverSpec;
+            this.deadline = deadline;
+            this.deadlineHandler = deadlineHandler;
+            this.listener = listener;
+        }
+
+        /**
+         * Set a listener notified as soon as the icon is loaded, before the cover. Must be called before {@link #start()}.
+         */
+        private void setIconListener(@Nullable Listener iconListener) {
+            this.iconListener = iconListener;
+        }
+
+        /**
+         * Only download the cover, without decoding it. Must be called before {@link #start()}.
+         */
+        private void setCoverDecodeDeferred(boolean coverDecodeDeferred) {
+            this.coverDecodeDeferred = coverDecodeDeferred;
+        }
+
+        private void start() {
+            startTime = SystemClock.elapsedRealtime();
+            deadlineHandler.postDelayed(deadlineRunnable, Math.max(0, deadline - startTime));
+            loadAsset(iconSpec, true);
+
+            // a rejected icon fails the load, the cover is not submitted to the saturated executor
+            if (rejected) {
+                onAssetLoaded();
+            } else {
+                loadAsset(coverSpec, false);
+            }
+        }
+
+        /**
+         * Abort the pending downloads. The listener is notified immediately if it was not already.
+         */
+        private void cancel() {
+            finish(false, true);
+        }
+
+        private void loadAsset(@Nullable NativeImageSpec spec, boolean isIcon) {
+            if (spec == null) {
+                if (isIcon) {
+                    notifyIconLoaded();
+                }
+                onAssetLoaded();
+                return;
+            }
+
+            submitAssetTask(spec, isIcon, 0);
+        }
+
+        /**
+         * Submit the download of an asset to the native asset executor, initially or once a connection to its host
+         * is available.
+         *
+         * @param assetStartTime The elapsed realtime at which the first attempt started, 0 for the first attempt.
+         * @return true if the download was submitted, false if the load is finished or the executor rejected it.
+         */
+        private boolean submitAssetTask(@NonNull NativeImageSpec spec, boolean isIcon, long assetStartTime) {
+            if (finished.get()) {
+                return false;
+            }
+
+            try {
+                Future<?> assetTask = getNativeAssetExecutor().submit(() -> runAssetTask(spec, isIcon, assetStartTime));
+
+                synchronized (this) {
+                    assetTasks.add(assetTask);
+                }
+                return true;
+            } catch (RejectedExecutionException e) {
+                rejected = true;
+                onAssetLoaded();
+                return false;
+            }
+        }
+
+        private void runAssetTask(@NonNull NativeImageSpec spec, boolean isIcon, long firstAttemptStartTime) {
+            long assetStartTime = firstAttemptStartTime > 0 ? firstAttemptStartTime : SystemClock.elapsedRealtime();
+
+            try {
+                if (!isIcon && coverDecodeDeferred) {
+                    try {
+                        coverData = loadImageData(spec.url, this);
+                    } catch (CreativeHttpClient.ConnectionLimitException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    coverLoadTime = SystemClock.elapsedRealtime() - assetStartTime;
+                    onAssetLoaded();
+                    return;
+                }
+
+                Bitmap bitmap = scaledBitmapFromUrl(spec.url, spec.targetWidth, spec.targetHeight,
+                        isIcon ? NativeImageKind.ICON : NativeImageKind.COVER, this);
+                long assetLoadTime = SystemClock.elapsedRealtime() - assetStartTime;
+
+                if (isIcon) {
+                    iconBitmap = bitmap;
+                    iconLoadTime = assetLoadTime;
+                    notifyIconLoaded();
+                } else {
+                    coverBitmap = bitmap;
+                    coverLoadTime = assetLoadTime;
+                }
+                onAssetLoaded();
+            } catch (CreativeHttpClient.ConnectionLimitException e) {
+                // the executor thread is released, the download is submitted again once a connection to its host is available
+                creativeHttpClient.runWhenConnectionAvailable(e.host, new CreativeHttpClient.PendingDownload() {
+
+                    @Override
+                    public boolean retry() {
+                        return submitAssetTask(spec, isIcon, assetStartTime);
+                    }
+
+                    @Override
+                    public boolean isOwnedBy(@NonNull Object owner) {
+                        return owner == NativeAssetsLoader.this;
+                    }
+                });
+
+                // the load may have been aborted before the download was queued
+                if (finished.get()) {
+                    creativeHttpClient.removePendingDownloads(this);
+                }
+            }
+        }
+
+        private void notifyIconLoaded() {
+            Listener listener = iconListener;
+            if (listener != null && !finished.get()) {
+                listener.onNativeAssetsLoaded(this);
+            }
+        }
+
+        private void onAssetLoaded() {
+            if (pendingAssetCount.decrementAndGet() == 0) {
+                finish(false, false);
+            }
+        }
+
+        private void finish(boolean timedOut, boolean cancelled) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+
+            deadlineHandler.removeCallbacks(deadlineRunnable);
+            this.timedOut = timedOut;
+            this.cancelled = cancelled;
+
+            if (timedOut || cancelled) {
+                abortPendingDownloads();
+            } else {
+                NativeAssetTimingListener timingListener = nativeAssetTimingListener;
+                if (timingListener != null && !rejected) {
+                    timingListener.onNativeAssetsLoaded(iconLoadTime, coverLoadTime, SystemClock.elapsedRealtime() - startTime);
+                }
+            }
+
+            Listener listener = this.listener;
+            this.listener = null;
+            iconListener = null;
+            if (listener != null) {
+                listener.onNativeAssetsLoaded(this);
+            }
+        }
+
+        private void abortPendingDownloads() {
+            // the downloads waiting for a connection would retain this loader until a connection to their host is released
+            creativeHttpClient.removePendingDownloads(this);
+
+            List<HttpURLConnection> openConnections = new ArrayList<>();
+            synchronized (this) {
+                for (Future<?> assetTask : assetTasks) {
+                    assetTask.cancel(true);
+                }
+                assetTasks.clear();
+
+                for (URLConnection connection : connections) {
+                    if (connection instanceof HttpURLConnection) {
+                        openConnections.add((HttpURLConnection) connection);
+                    }
+                }
+                connections.clear();
+            }
+
+            if (openConnections.isEmpty()) {
+                return;
+            }
+
+            // disconnecting closes sockets, which must not be done on the main thread this is called from
+            try {
+                getNativeAssetExecutor().execute(() -> {
+                    for (HttpURLConnection connection : openConnections) {
+                        connection.disconnect();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the read timeouts of the connections, bounded by the deadline, end the downloads instead
+            }
+        }
+
+        /**
+         * Register a connection opened to download one of the assets, to abort it if the load times out or is cancelled.
+         *
+         * @return false if the load is already finished, in which case the connection must not be used.
+         */
+        private synchronized boolean registerConnection(@NonNull URLConnection connection) {
+            if (finished.get()) {
+                return false;
+            }
+            connections.add(connection);
+            return true;
+        }
+
+        private synchronized void unregisterConnection(@NonNull URLConnection connection) {
+            connections.remove(connection);
+        }
+
+        private long getRemainingTime() {
+            return deadline - SystemClock.elapsedRealtime();
+        }
+
+        @Nullable
+        private Bitmap getIconBitmap() {
+            return iconBitmap;
+        }
+
+        @Nullable
+        private Bitmap getCoverBitmap() {
+            return coverBitmap;
+        }
+
+        /**
+         * Release the references of this loader to its images, once they are handed over or no longer needed.
+         */
+        private synchronized void releaseImages() {
+            nativeBitmapPool.release(iconBitmap);
+            nativeBitmapPool.release(coverBitmap);
+            iconBitmap = null;
+            coverBitmap = null;
+        }
+
+        /**
+         * @return the encoded cover image, when its decoding is deferred.
+         */
+        @Nullable
+        private byte[] getCoverData() {
+            return coverData;
+        }
+
+        @Nullable
+        private String getCoverUrl() {
+            return coverSpec != null ? coverSpec.url : null;
+        }
+
+        private boolean isCoverDecodeDeferred() {
+            return coverDecodeDeferred;
+        }
+
+        private boolean isRejected() {
+            return rejected;
+        }
+
+        private boolean isTimedOut() {
+            return timedOut;
+        }
+
+        private boolean isCancelled() {
+            return cancelled;
+        }
+
+        private boolean isFinished() {
+            return finished.get();
+        }
+    }
+
+    /// Native image cache
+
+    /**
+     * Set the memory budget of the cache of decoded native ad images shared by all adapter instances.
+     * Images are cached by URL and target size, so that repeated impressions of the same creative are
+     * rendered without downloading and decoding it again. Changing the budget clears the cache and its statistics.
+     *
+     * @param maxSizeInBytes The maximum size of the cached bitmaps in bytes, 0 to disable the cache.
+     */
+    public static void setNativeImageCacheSize(int maxSizeInBytes) {
+        NativeImageCache previousCache = nativeImageCache;
+        nativeImageCache = maxSizeInBytes > 0 ? new NativeImageCache(maxSizeInBytes) : null;
+
+        if (previousCache != null) {
+            previousCache.evictAll();
+        }
+    }
+
+    /**
+     * @return the current size of the cached native ad images in bytes.
+     */
+    public static int getNativeImageCacheSize() {
+        NativeImageCache cache = nativeImageCache;
+        return cache != null ? cache.size() : 0;
+    }
+
+    /**
+     * @return the number of native ad images found in the cache.
+     */
+    public static int getNativeImageCacheHitCount() {
+        NativeImageCache cache = nativeImageCache;
+        return cache != null ? cache.hitCount() : 0;
+    }
+
+    /**
+     * @return the number of native ad images that had to be downloaded because they were not in the cache.
+     */
+    public static int getNativeImageCacheMissCount() {
+        NativeImageCache cache = nativeImageCache;
+        return cache != null ? cache.missCount() : 0;
+    }
+
+    /**
+     * @return the number of native ad images evicted from the cache to stay within its memory budget.
+     */
+    public static int getNativeImageCacheEvictionCount() {
+        NativeImageCache cache = nativeImageCache;
+        return cache != null ? cache.evictionCount() : 0;
+    }
+
+    /**
+     * LRU cache of decoded native ad images, keyed by URL and target size and sized by bitmap bytes.
+     */
+    private static class NativeImageCache extends LruCache<String, Bitmap> {
+
+        public NativeImageCache(int maxSizeInBytes) {
+            super(maxSizeInBytes);
+        }
+
+        @NonNull
+        private static String keyFor(@NonNull String url, int targetWidth, int targetHeight) {
+            return targetWidth + "x" + targetHeight + "/" + url;
+        }
+
+        @Override
+        protected int sizeOf(@NonNull String key, @NonNull Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+
+        /**
+         * @return the cached bitmap for the given key, retained for the caller, or null if it is not cached.
+         */
+        @Nullable
+        private Bitmap getAndRetain(@NonNull String key) {
+            // a bitmap evicted concurrently must not reach the bitmap pool between the lookup and the retain
+            synchronized (nativeBitmapPool) {
+                Bitmap bitmap = get(key);
+                nativeBitmapPool.retain(bitmap);
+                return bitmap;
+            }
+        }
+
+        private void retainAndPut(@NonNull String key, @NonNull Bitmap bitmap) {
+            nativeBitmapPool.retain(bitmap);
+            put(key, bitmap);
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, @NonNull String key, @NonNull Bitmap oldValue, @Nullable Bitmap newValue) {
+            nativeBitmapPool.release(oldValue);
+        }
+
+        /**
+         * Halve the cache at the first trim stage, and empty it from the second one.
+         */
+        private void trimMemory(int trimStage, @NonNull TrimResult result) {
+            int previousSize = size();
+            if (trimStage < TRIM_STAGE_PRELOADED) {
+                trimToSize(maxSize() / 2);
+            } else {
+                evictAll();
+            }
+            result.releasedBytes += Math.max(0, previousSize - size());
+        }
+    }
+
+    /// Native bitmap pool
+
+    /**
+     * Set the byte budget of the pool of native ad bitmaps kept for reuse once no longer displayed, shared by
+     * all adapter instances. Native ad images are then decoded into the memory of a released bitmap of a close
+     * size instead of a new allocation, which reduces the garbage collections caused by feeds of native ads.
+     * Images are decoded as mutable bitmaps while the pool is enabled, and it requires Android 4.4 or later.
+     * A bitmap returns to the pool once released by every native ad, image view and cache using it: native ads
+     * must be destroyed through AppLovin MAX once their view is no longer displayed.
+     *
+     * @param maxSizeInBytes The maximum size of the pooled bitmaps in bytes, 0 to disable the pool (the default).
+     */
+    public static void setNativeBitmapPoolSize(long maxSizeInBytes) {
+        nativeBitmapPoolMaxSize = Math.max(0, maxSizeInBytes);
+        nativeBitmapPool.trimToSize(nativeBitmapPoolMaxSize);
+    }
+
+    /**
+     * @return the current size of the pooled bitmaps in bytes.
+     */
+    public static long getNativeBitmapPoolSize() {
+        return nativeBitmapPool.getSize();
+    }
+
+    /**
+     * @return the number of native ad images decoded into a pooled bitmap.
+     */
+    public static long getNativeBitmapPoolHitCount() {
+        return nativeBitmapPool.hitCount.get();
+    }
+
+    /**
+     * @return the number of native ad images decoded into a new bitmap while the pool was enabled.
+     */
+    public static long getNativeBitmapPoolMissCount() {
+        return nativeBitmapPool.missCount.get();
+    }
+
+    /**
+     * @return the number of pooled bitmaps dropped to stay within the byte budget of the pool.
+     */
+    public static long getNativeBitmapPoolEvictionCount() {
+        return nativeBitmapPool.evictionCount.get();
+    }
+
+    private static boolean isNativeBitmapPoolEnabled() {
+        return nativeBitmapPoolMaxSize > 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
+    }
+
+    /**
+     * Pool of released native ad bitmaps, bucketed by allocation size, reused through {@link BitmapFactory.Options#inBitmap}.
+     * Decoded bitmaps are reference counted by their holders: the native image cache, the assets loaders, the queued
+     * and delivered native ads and the cover image views. Only bitmaps released by all their holders enter the pool, so
+     * that a pooled bitmap is never displayed. The counts are weak, a bitmap retained by a discarded holder is simply
+     * never pooled.
+     */
+    private static class NativeBitmapPool {
+
+        // reference counts of the decoded bitmaps, Bitmap does not override equals and hashCode
+        @NonNull
+        private final Map<Bitmap, Integer> referenceCounts = new WeakHashMap<>();
+
+        // free bitmaps by allocation size in bytes
+        @NonNull
+        private final TreeMap<Integer, ArrayDeque<Bitmap>> buckets = new TreeMap<>();
+
+        // free bitmaps from the least to the most recently released
+        @NonNull
+        private final ArrayDeque<Bitmap> freeBitmaps = new ArrayDeque<>();
+
+        private long size = 0;
+
+        private final AtomicLong hitCount = new AtomicLong();
+
+        private final AtomicLong missCount = new AtomicLong();
+
+        private final AtomicLong evictionCount = new AtomicLong();
+
+        private synchronized void retain(@Nullable Bitmap bitmap) {
+            if (bitmap == null || !bitmap.isMutable()) {
+                // immutable bitmaps cannot be reused and are not counted
+                return;
+            }
+
+            Integer count = referenceCounts.get(bitmap);
+            referenceCounts.put(bitmap, count != null ? count + 1 : 1);
+        }
+
+        private synchronized void release(@Nullable Bitmap bitmap) {
+            Integer count = bitmap != null ? referenceCounts.get(bitmap) : null;
+            if (count == null) {
+                return;
+            }
+
+            if (count > 1) {
+                referenceCounts.put(bitmap, count - 1);
+                return;
+            }
+
+            referenceCounts.remove(bitmap);
+
+            long maxSize = nativeBitmapPoolMaxSize;
+            Bitmap.Config config = bitmap.getConfig();
+            if (maxSize <= 0 || bitmap.isRecycled() || (config != Bitmap.Config.ARGB_8888 && config != Bitmap.Config.RGB_565)) {
+                return;
+            }
+
+            int byteCount = bitmap.getAllocationByteCount();
+            ArrayDeque<Bitmap> bucket = buckets.get(byteCount);
+            if (bucket == null) {
+                bucket = new ArrayDeque<>();
+                buckets.put(byteCount, bucket);
+            }
+            bucket.addLast(bitmap);
+            freeBitmaps.addLast(bitmap);
+            size += byteCount;
+
+            trimToSize(maxSize);
+        }
+
+        /**
+         * @return a free bitmap large enough to decode an image of the given size and bytes per pixel, or null if
+         * there is none. The decoder reconfigures the bitmap to the size and format of the image.
+         */
+        @Nullable
+        private synchronized Bitmap get(int width, int height, int bytesPerPixel) {
+            // the size computed before decoding may be one row or one column off the decoded one
+            int minByteCount = Math.max(1, (width - 1) * (height - 1) * bytesPerPixel);
+            int maxByteCount = width * height * bytesPerPixel * 2;
+
+            Map.Entry<Integer, ArrayDeque<Bitmap>> entry = buckets.ceilingEntry(minByteCount);
+            if (entry == null || entry.getKey() > maxByteCount) {
+                missCount.incrementAndGet();
+                return null;
+            }
+
+            Bitmap bitmap = entry.getValue().pollLast();
+            if (entry.getValue().isEmpty()) {
+                buckets.remove(entry.getKey());
+            }
+            freeBitmaps.removeLastOccurrence(bitmap);
+            size -= entry.getKey();
+
+            hitCount.incrementAndGet();
+            return bitmap;
+        }
+
+        private synchronized void trimToSize(long maxSize) {
+            while (size > maxSize && !freeBitmaps.isEmpty()) {
+                Bitmap bitmap = freeBitmaps.pollFirst();
+                int byteCount = bitmap.getAllocationByteCount();
+
+                ArrayDeque<Bitmap> bucket = buckets.get(byteCount);
+                if (bucket != null) {
+                    bucket.removeFirstOccurrence(bitmap);
+                    if (bucket.isEmpty()) {
+                        buckets.remove(byteCount);
+                    }
+                }
+                size -= byteCount;
+                evictionCount.incrementAndGet();
+            }
+        }
+
+        private synchronized long getSize() {
+            return size;
+        }
+
+        /**
+         * Drop the pooled bitmaps, which are not displayed, from the first trim stage.
+         */
+        private synchronized void trimMemory(int trimStage, @NonNull TrimResult result) {
+            result.releasedBytes += size;
+            trimToSize(0);
+        }
+    }
+
+    /// Native image formats
+
+    /**
+     * Kinds of native ad images, decoded with their own {@link NativeImageFormat}.
+     */
+    public enum NativeImageKind {
+
+        /**
+         * Icon of the native ad, usually small.
+         */
+        ICON,
+
+        /**
+         * Cover of the native ad, displayed in its media view.
+         */
+        COVER
+    }
+
+    /**
+     * Pixel formats of the decoded native ad images.
+     */
+    public enum NativeImageFormat {
+
+        /**
+         * 4 bytes per pixel in the Java heap, for every image.
+         */
+        ARGB_8888,
+
+        /**
+         * 2 bytes per pixel in the Java heap (RGB_565) for opaque images, such as JPEG images, and ARGB_8888 for the
+         * images that may have transparency. Colors are slightly degraded, and gradients may show banding.
+         */
+        COMPACT,
+
+        /**
+         * Pixels stored in graphics memory only, out of the Java heap, from Android 8.0. Such bitmaps cannot be reused
+         * through the native bitmap pool. Images are decoded with the {@link #COMPACT} format on older versions.
+         */
+        HARDWARE
+    }
+
+    /**
+     * Set the pixel format of the native ad images of the given kind. Images already in the native image cache
+     * keep their format.
+     *
+     * @param kind The kind of the native ad images.
+     * @param format The pixel format of these images ({@link NativeImageFormat#ARGB_8888} by default).
+     */
+    public static void setNativeImageFormat(@NonNull NativeImageKind kind, @NonNull NativeImageFormat format) {
+        if (kind == NativeImageKind.ICON) {
+            nativeIconImageFormat = format;
+        } else {
+            nativeCoverImageFormat = format;
+        }
+    }
+
+    @NonNull
+    public static NativeImageFormat getNativeImageFormat(@NonNull NativeImageKind kind) {
+        return kind == NativeImageKind.ICON ? nativeIconImageFormat : nativeCoverImageFormat;
+    }
+
+    /**
+     * @return the average size in the Java heap of the images of the given kind per native ad delivered with the given
+     * format, in bytes, or 0 if no native ad was delivered with this format. Hardware bitmaps count as 0 byte.
+     */
+    public static long getNativeImageHeapBytesPerImpression(@NonNull NativeImageKind kind, @NonNull NativeImageFormat format) {
+        int index = kind.ordinal() * NativeImageFormat.values().length + format.ordinal();
+        long impressionCount = nativeImageImpressionCount.get(index);
+        return impressionCount > 0 ? nativeImageHeapBytes.get(index) / impressionCount : 0;
+    }
+
+    /**
+     * Record the heap size of an image of a delivered native ad, for the format currently set for its kind.
+     */
+    private static void recordNativeImageHeapBytes(@NonNull NativeImageKind kind, @NonNull Bitmap bitmap) {
+        int index = kind.ordinal() * NativeImageFormat.values().length + getNativeImageFormat(kind).ordinal();
+        nativeImageHeapBytes.addAndGet(index, isHardwareBitmap(bitmap) ? 0 : bitmap.getAllocationByteCount());
+        nativeImageImpressionCount.incrementAndGet(index);
+    }
+
+    /**
+     * @return the bitmap config to decode an image of the given kind with, as set by its {@link NativeImageFormat}.
+     */
+    @NonNull
+    private static Bitmap.Config getNativeImageConfig(@NonNull NativeImageKind kind, boolean opaque) {
+        switch (getNativeImageFormat(kind)) {
+            case HARDWARE:
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    return Bitmap.Config.HARDWARE;
+                }
+                // fall back to the compact format
+            case COMPACT:
+                return opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+            default:
+                return Bitmap.Config.ARGB_8888;
+        }
+    }
+
+    private static boolean isHardwareBitmap(@NonNull Bitmap bitmap) {
+        // Bitmap.Config.HARDWARE does not exist before Android 8.0
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bitmap.getConfig() == Bitmap.Config.HARDWARE;
+    }
+
+    /// Creative HTTP client
+
+    /**
+     * Set the maximum number of concurrent downloads of native ad images from the same host. Downloads beyond this
+     * limit are queued, without holding a native asset executor thread, until a previous one completes, so that they
+     * reuse its kept alive connection instead of opening new ones, each paying for its own TLS handshake.
+     *
+     * @param maxConnections The maximum number of connections per host, 0 for no limit (the default).
+     */
+    public static void setCreativeMaxConnectionsPerHost(int maxConnections) {
+        creativeMaxConnectionsPerHost = Math.max(0, maxConnections);
+        creativeHttpClient.onConfigurationChanged();
+    }
+
+    /**
+     * Set how long an idle connection is expected to be kept alive by the system HTTP stack, to estimate the
+     * connection reuse. It should match the keep alive duration of the HTTP stack, 5 minutes on Android.
+     *
+     * @param durationMillis The keep alive duration of idle connections, in milliseconds.
+     */
+    public static void setCreativeKeepAliveDuration(long durationMillis) {
+        creativeKeepAliveDuration = Math.max(0, durationMillis);
+    }
+
+    /**
+     * @return the number of native ad image downloads.
+     */
+    public static long getCreativeRequestCount() {
+        return creativeHttpClient.requestCount.get();
+    }
+
+    /**
+     * @return the estimated number of native ad image downloads that reused a kept alive connection. The system
+     * HTTP stack does not expose its connection pool, so a connection is considered reusable when a previous response
+     * from the same host was fully read without a "Connection: close" header within the keep alive duration.
+     */
+    public static long getCreativeConnectionReuseCount() {
+        return creativeHttpClient.connectionReuseCount.get();
+    }
+
+    /**
+     * @return the number of times a native ad image download was queued until a connection to its host was available.
+     */
+    public static long getCreativeConnectionWaitCount() {
+        return creativeHttpClient.connectionWaitCount.get();
+    }
+
+    /**
+     * Client downloading the native ad images through the system HTTP stack, which pools kept alive connections
+     * by host. It limits the concurrent downloads per host, reads responses so that their connection returns to
+     * the pool (including error responses, up to a small size), and buffers them in an array sized from their
+     * Content-Length, up to a maximum size.
+     */
+    private static class CreativeHttpClient {
+
+        // responses bigger than this are not native ad images, they are rejected without being buffered entirely
+        private static final int MAX_RESPONSE_SIZE = 10 * 1024 * 1024;
+
+        // the Content-Length is not trusted beyond this size, bigger responses grow their buffer as they are read
+        private static final int MAX_PREALLOCATED_SIZE = 1024 * 1024;
+
+        // error bodies bigger than this are not drained, their connection is not reused
+        private static final int MAX_ERROR_BODY_SIZE = 64 * 1024;
+
+        /**
+         * Thrown instead of downloading when the connection limit of the host is reached, so that the download
+         * is retried through {@link #runWhenConnectionAvailable} without blocking its thread.
+         */
+        private static class ConnectionLimitException extends IOException {
+
+            @NonNull
+            private final String host;
+
+            public ConnectionLimitException(@NonNull String host) {
+                super("No connection available to " + host);
+                this.host = host;
+            }
+        }
+
+        /**
+         * Download waiting for a connection to its host.
+         */
+        private interface PendingDownload {
+
+            /**
+             * @return false if the download is no longer needed, in which case the next pending download is retried.
+             */
+            boolean retry();
+
+            /**
+             * @return true if the download was queued by the given owner, see {@link #removePendingDownloads(Object)}.
+             */
+            boolean isOwnedBy(@NonNull Object owner);
+        }
+
+        // hosts with active or idle connections, guarded by this client
+        @NonNull
+        private final Map<String, HostConnections> hostConnections = new HashMap<>();
+
+        private final AtomicLong requestCount = new AtomicLong();
+
+        private final AtomicLong connectionReuseCount = new AtomicLong();
+
+        private final AtomicLong connectionWaitCount = new AtomicLong();
+
+        @NonNull
+        private byte[] download(@Nullable String url, @NonNull NativeAssetsLoader loader) throws IOException {
+            if (url == null) {
+                throw new IOException("No URL to download");
+            }
+
+            URL parsedUrl = new URL(url);
+            String host = parsedUrl.getProtocol() + "://" + parsedUrl.getAuthority();
+            HostConnections connections = acquireConnection(host);
+            if (connections == null) {
+                throw new ConnectionLimitException(host);
+            }
+
+            boolean reusable = false;
+            try {
+                long remainingTime = loader.getRemainingTime();
+                if (remainingTime <= 0) {
+                    throw new SocketTimeoutException("Native ad load deadline reached before downloading " + url);
+                }
+
+                URLConnection connection = parsedUrl.openConnection();
+                connection.setConnectTimeout((int) Math.min(Integer.MAX_VALUE, remainingTime));
+                connection.setReadTimeout((int) Math.min(Integer.MAX_VALUE, remainingTime));
+
+                if (!loader.registerConnection(connection)) {
+                    throw new InterruptedIOException("Native ad load finished before downloading " + url);
+                }
+
+                try {
+                    if (connection instanceof HttpURLConnection) {
+                        HttpURLConnection httpConnection = (HttpURLConnection) connection;
+                        int responseCode = httpConnection.getResponseCode();
+                        if (responseCode >= 400) {
+                            // the error body is read for the connection to be kept alive, unless it is too big
+                            InputStream errorStream = httpConnection.getErrorStream();
+                            if (errorStream != null) {
+                                boolean drained;
+                                try (InputStream inputStream = errorStream) {
+                                    drained = drain(inputStream, MAX_ERROR_BODY_SIZE);
+                                }
+                                reusable = drained && isKeptAlive(connection);
+                            }
+                            throw new IOException("HTTP error " + responseCode + " while downloading " + url);
+                        }
+                    }
+
+                    byte[] data;
+                    try (InputStream inputStream = connection.getInputStream()) {
+                        data = readFully(inputStream, connection.getContentLength());
+                    }
+                    reusable = isKeptAlive(connection);
+                    return data;
+                } finally {
+                    loader.unregisterConnection(connection);
+                }
+            } finally {
+                releaseConnection(connections, reusable);
+            }
+        }
+
+        /**
+         * @return the connections of the host, with a connection reserved for the caller, or null if the connection
+         * limit of the host is reached.
+         */
+        @Nullable
+        private synchronized HostConnections acquireConnection(@NonNull String host) {
+            HostConnections connections = hostConnections.get(host);
+            if (connections == null) {
+                connections = new HostConnections(host);
+                hostConnections.put(host, connections);
+            }
+
+            if (isConnectionLimitReached(connections)) {
+                return null;
+            }
+
+            requestCount.incrementAndGet();
+            connections.activeCount++;
+
+            // idle connections older than the keep alive duration were closed by the HTTP stack
+            long now = SystemClock.elapsedRealtime();
+            long keepAliveDuration = creativeKeepAliveDuration;
+            while (!connections.idleTimes.isEmpty() && now - connections.idleTimes.peekFirst() > keepAliveDuration) {
+                connections.idleTimes.pollFirst();
+            }
+            if (connections.idleTimes.pollLast() != null) {
+                connectionReuseCount.incrementAndGet();
+            }
+
+            return connections;
+        }
+
+        private static boolean isConnectionLimitReached(@NonNull HostConnections connections) {
+            int maxConnections = creativeMaxConnectionsPerHost;
+            return maxConnections > 0 && connections.activeCount >= maxConnections;
+        }
+
+        /**
+         * Retry the given download once a connection to the host is available: immediately if one was released since
+         * the download was refused, else when a download from this host completes.
+         */
+        private void runWhenConnectionAvailable(@NonNull String host, @NonNull PendingDownload pendingDownload) {
+            synchronized (this) {
+                HostConnections connections = hostConnections.get(host);
+                if (connections != null && isConnectionLimitReached(connections)) {
+                    connectionWaitCount.incrementAndGet();
+                    connections.pendingDownloads.addLast(pendingDownload);
+                    return;
+                }
+            }
+            pendingDownload.retry();
+        }
+
+        private void releaseConnection(@NonNull HostConnections connections, boolean reusable) {
+            synchronized (this) {
+                connections.activeCount--;
+                if (reusable) {
+                    connections.idleTimes.addLast(SystemClock.elapsedRealtime());
+                }
+            }
+
+            // the released connection goes to the first pending download still needed
+            PendingDownload pendingDownload;
+            do {
+                synchronized (this) {
+                    pendingDownload = connections.pendingDownloads.pollFirst();
+                    if (pendingDownload == null) {
+                        removeIfUnused(connections);
+                        return;
+                    }
+                }
+            } while (!pendingDownload.retry());
+        }
+
+        /**
+         * Drop the downloads of the given owner waiting for a connection, once they are no longer needed.
+         */
+        private synchronized void removePendingDownloads(@NonNull Object owner) {
+            Iterator<HostConnections> iterator = hostConnections.values().iterator();
+            while (iterator.hasNext()) {
+                HostConnections connections = iterator.next();
+                Iterator<PendingDownload> pendingDownloadIterator = connections.pendingDownloads.iterator();
+                while (pendingDownloadIterator.hasNext()) {
+                    if (pendingDownloadIterator.next().isOwnedBy(owner)) {
+                        pendingDownloadIterator.remove();
+                    }
+                }
+
+                if (connections.activeCount == 0 && connections.idleTimes.isEmpty() && connections.pendingDownloads.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        private void onConfigurationChanged() {
+            // pending downloads are retried against the new limit, the ones still over it are queued again
+            List<PendingDownload> pendingDownloads = new ArrayList<>();
+            synchronized (this) {
+                Iterator<HostConnections> iterator = hostConnections.values().iterator();
+                while (iterator.hasNext()) {
+                    HostConnections connections = iterator.next();
+                    pendingDownloads.addAll(connections.pendingDownloads);
+                    connections.pendingDownloads.clear();
+                    if (connections.activeCount == 0 && connections.idleTimes.isEmpty()) {
+                        iterator.remove();
+                    }
+                }
+            }
+
+            for (PendingDownload pendingDownload : pendingDownloads) {
+                pendingDownload.retry();
+            }
+        }
+
+        // must be called with the lock of this client held
+        private void removeIfUnused(@NonNull HostConnections connections) {
+            if (connections.activeCount == 0 && connections.idleTimes.isEmpty() && connections.pendingDownloads.isEmpty()) {
+                hostConnections.remove(connections.host);
+            }
+        }
+
+        private static boolean isKeptAlive(@NonNull URLConnection connection) {
+            return !"close".equalsIgnoreCase(connection.getHeaderField("Connection"));
+        }
+
+        /**
+         * @return the content of the given stream, read in an array of the expected length when it is known and
+         * small enough, to avoid growing and copying a buffer for each response.
+         * @throws IOException if the content is bigger than {@link #MAX_RESPONSE_SIZE}.
+         */
+        @NonNull
+        private static byte[] readFully(@NonNull InputStream inputStream, int expectedLength) throws IOException {
+            if (expectedLength > MAX_RESPONSE_SIZE) {
+                throw new IOException("Response of " + expectedLength + " bytes exceeds the maximum size of " + MAX_RESPONSE_SIZE + " bytes");
+            }
+
+            if (expectedLength >= 0 && expectedLength <= MAX_PREALLOCATED_SIZE) {
+                byte[] data = new byte[expectedLength];
+                int offset = 0;
+                while (offset < expectedLength) {
+                    int readCount = inputStream.read(data, offset, expectedLength - offset);
+                    if (readCount == -1) {
+                        throw new IOException("Response truncated after " + offset + " of " + expectedLength + " bytes");
+                    }
+                    offset += readCount;
+                }
+
+                // the end of the stream must be read for the connection to be reused
+                int nextByte = inputStream.read();
+                if (nextByte == -1) {
+                    return data;
+                }
+
+                // the response is longer than its Content-Length, it is read entirely anyway
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream(expectedLength * 2);
+                outputStream.write(data, 0, expectedLength);
+                outputStream.write(nextByte);
+                copy(inputStream, outputStream);
+                return outputStream.toByteArray();
+            }
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(expectedLength > 0 ? MAX_PREALLOCATED_SIZE : 32);
+            copy(inputStream, outputStream);
+            return outputStream.toByteArray();
+        }
+
+        private static void copy(@NonNull InputStream inputStream, @NonNull ByteArrayOutputStream outputStream) throws IOException {
+            byte[] buffer = new byte[8192];
+            int readCount;
+            while ((readCount = inputStream.read(buffer)) != -1) {
+                if (outputStream.size() + readCount > MAX_RESPONSE_SIZE) {
+                    throw new IOException("Response exceeds the maximum size of " + MAX_RESPONSE_SIZE + " bytes");
+                }
+                outputStream.write(buffer, 0, readCount);
+            }
+        }
+
+        /**
+         * Read and discard the content of the given stream, up to the given number of bytes.
+         *
+         * @return true if the end of the stream was reached.
+         */
+        private static boolean drain(@NonNull InputStream inputStream, int maxLength) throws IOException {
+            byte[] buffer = new byte[8192];
+            int totalCount = 0;
+            int readCount;
+            while ((readCount = inputStream.read(buffer)) != -1) {
+                totalCount += readCount;
+                if (totalCount > maxLength) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Active and idle connections to a host of native ad images.
+     */
+    private static class HostConnections {
+
+        @NonNull
+        private final String host;
+
+        private int activeCount = 0;
+
+        // elapsed realtime at which each idle connection was released, from the oldest to the newest
+        @NonNull
+        private final ArrayDeque<Long> idleTimes = new ArrayDeque<>();
+
+        // downloads waiting for a connection, in arrival order
+        @NonNull
+        private final ArrayDeque<CreativeHttpClient.PendingDownload> pendingDownloads = new ArrayDeque<>();
+
+        public HostConnections(@NonNull String host) {
+            this.host = host;
+        }
+    }
+
+    /// Native asset disk cache
+
+    /**
+     * Set the byte budget of the on-disk cache of native ad images, stored in the application cache
+     * directory and shared by all adapter instances. This cache survives process restarts, so that
+     * native ads are displayed after a relaunch without downloading their creatives again.
+     *
+     * @param maxSizeInBytes The maximum size of the cached images in bytes, 0 to disable the cache. Images bigger
+     *                       than this size are not cached.
+     */
+    public static void setNativeAssetDiskCacheSize(long maxSizeInBytes) {
+        // an open cache is trimmed to the new size by the next native asset download, off the calling thread
+        nativeAssetDiskCacheMaxSize = Math.max(0, maxSizeInBytes);
+    }
+
+    private static void setNativeAssetDiskCacheContext(@NonNull Context context) {
+        if (nativeAssetDiskCacheContext == null) {
+            nativeAssetDiskCacheContext = context.getApplicationContext();
+        }
+    }
+
+    /**
+     * Open the native asset disk cache if needed, and apply its configured size. It must only be called from the
+     * native asset executor as it reads the cache journal and may delete cached files.
+     *
+     * @return the native asset disk cache, or null if it is disabled or cannot be opened.
+     */
+    @Nullable
+    private static NativeAssetDiskCache getNativeAssetDiskCache() {
+        long maxSize = nativeAssetDiskCacheMaxSize;
+        Context context = nativeAssetDiskCacheContext;
+        if (maxSize <= 0 || context == null) {
+            return null;
+        }
+
+        synchronized (nativeAssetDiskCacheLock) {
+            if (nativeAssetDiskCache == null) {
+                try {
+                    File directory = new File(context.getCacheDir(), NativeAssetDiskCache.DIRECTORY_NAME);
+                    nativeAssetDiskCache = NativeAssetDiskCache.open(directory, maxSize);
+                } catch (IOException e) {
+                    // disable the cache instead of retrying to open it for every image
+                    e.printStackTrace();
+                    nativeAssetDiskCacheMaxSize = 0;
+                    return null;
+                }
+            }
+
+            nativeAssetDiskCache.setMaxSize(maxSize);
+            return nativeAssetDiskCache;
+        }
+    }
+
+    /**
+     * Store downloaded image data in the native asset disk cache once it was decoded, or drop a cached entry
+     * that cannot be decoded, so that the cache never serves undecodable data. It must only be called from the
+     * native asset executor.
+     */
+    private static void updateNativeAssetDiskCache(@NonNull String url, @NonNull byte[] imageData, boolean decoded) {
+        NativeAssetDiskCache diskCache = getNativeAssetDiskCache();
+        if (diskCache == null) {
+            return;
         }
 
-        String[] subStrings = rawAdPlacement.split("/");
+        if (!decoded) {
+            diskCache.remove(NativeAssetDiskCache.keyFor(url));
+        } else if (!diskCache.contains(url)) {
+            diskCache.put(url, imageData);
+        }
+    }
 
-        int siteId;
-        int pageId;
-        int formatId;
-        String targeting = null;
+    /**
+     * Size bounded LRU cache of native ad image bytes, stored as one file per image.
+     * <p>
+     * The index of the cache is kept in memory and persisted in an append-only journal: each line
+     * records a written ('P'), read ('R') or deleted ('D') entry. Image files are written to a temporary
+     * file and renamed before being added to the journal, so that a crash never leaves a truncated
+     * entry in the index. Files not referenced by the journal are deleted when the cache is opened.
+     */
+    private static class NativeAssetDiskCache {
 
-        try {
-            siteId = Integer.parseInt(subStrings[0].trim());
-            pageId = Integer.parseInt(subStrings[1].trim());
-            formatId = Integer.parseInt(subStrings[2].trim());
+        private static final String DIRECTORY_NAME = "equativ_native_assets";
+        private static final String JOURNAL_FILE_NAME = "journal";
+        private static final String JOURNAL_TEMP_FILE_NAME = "journal.tmp";
+        private static final String TEMP_FILE_SUFFIX = ".tmp";
+        private static final int MAX_REDUNDANT_JOURNAL_LINES = 1000;
 
-            if (subStrings.length > 3) {
-                targeting = subStrings[3];
-            }
+        @NonNull
+        private final File directory;
 
-        } catch (Exception ignored) {
-            return null;
-        }
+        private long maxSize;
 
-        return new SASAdPlacement(siteId, pageId, formatId, targeting);
-    }
+        // entries file names, in access order, mapped to their size in bytes
+        @NonNull
+        private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
 
-    /// Banner adapter implementation
+        private long size = 0;
 
-    @Override
-    public void loadAdViewAd(MaxAdapterResponseParameters maxAdapterResponseParameters, MaxAdFormat maxAdFormat, Activity activity, MaxAdViewAdapterListener maxAdViewAdapterListener) {
-        SASAdPlacement adPlacement = convertToAdPlacement(maxAdapterResponseParameters.getThirdPartyAdPlacementId());
+        private int redundantJournalLineCount = 0;
 
-        if (adPlacement == null) {
-            Log.e(mediationTag(), "The PlacementId found is not a valid Equativ placement. This placement should be formatted like: <site id>/<page id>/<format id>[/<targeting string> (optional)] (ex: 123/456/789/targetingString or 123/456/789). The invalid found PlacementId string: " + maxAdapterResponseParameters.getThirdPartyAdPlacementId());
-            maxAdViewAdapterListener.onAdViewAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
-            return;
+        @Nullable
+        private Writer journalWriter = null;
+
+        private NativeAssetDiskCache(@NonNull File directory, long maxSize) {
+            this.directory = directory;
+            this.maxSize = maxSize;
         }
 
-        // Configure Smart Display SDK
-        SASConfiguration.INSTANCE.configure(activity);
+        @NonNull
+        private static NativeAssetDiskCache open(@NonNull File directory, long maxSize) throws IOException {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create native asset disk cache directory " + directory);
+            }
 
-        // Execute in UI thread
-        mainLooperHandler.post(() -> {
-            if (bannerView == null) {
-                bannerView = new SASBannerView(activity);
+            NativeAssetDiskCache cache = new NativeAssetDiskCache(directory, maxSize);
+            synchronized (cache) {
+                cache.readJournal();
+                cache.deleteUnreferencedFiles();
+                cache.rebuildJournal();
+                cache.trimToSize();
             }
+            return cache;
+        }
 
-            bannerView.setBannerListener(new SASBannerView.BannerListener() {
+        @Nullable
+        private byte[] get(@NonNull String url) {
+            String key = keyFor(url);
+            synchronized (this) {
+                if (entries.get(key) == null) {
+                    return null;
+                }
+                appendJournalLine('R', key, 0);
+            }
 
+            // the file is read out of the lock, it may have been evicted in the meantime
+            try {
+                return readFile(new File(directory, key));
+            } catch (IOException e) {
+                remove(key);
+                return null;
+            }
+        }
 
-                @Override
-                public void onBannerAdCollapsed() {
-                    maxAdViewAdapterListener.onAdViewAdCollapsed();
-                }
+        private synchronized boolean contains(@NonNull String url) {
+            return entries.containsKey(keyFor(url));
+        }
 
-                @Override
-                public void onBannerAdExpanded() {
-                    maxAdViewAdapterListener.onAdViewAdExpanded();
+        private void put(@NonNull String url, @NonNull byte[] data) {
+            // an entry bigger than the whole budget would evict all the other entries, then itself
+            synchronized (this) {
+                if (data.length > maxSize) {
+                    return;
                 }
+            }
 
-                @Override
-                public void onBannerAdAudioStart() {
-                    // not supported by AppLovin
-                }
+            String key = keyFor(url);
+            File tempFile = new File(directory, key + "." + Thread.currentThread().getId() + TEMP_FILE_SUFFIX);
 
-                @Override
-                public void onBannerAdAudioStop() {
-                    // not supported by AppLovin
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                outputStream.write(data);
+            } catch (IOException e) {
+                tempFile.delete();
+                return;
+            }
+
+            synchronized (this) {
+                if (!tempFile.renameTo(new File(directory, key))) {
+                    tempFile.delete();
+                    return;
                 }
 
-                @Override
-                public void onBannerAdRequestClose() {
-                    // Nothing to do
-                    maxAdViewAdapterListener.onAdViewAdHidden();
+                Long previousSize = entries.put(key, (long) data.length);
+                if (previousSize != null) {
+                    size -= previousSize;
                 }
+                size += data.length;
+                appendJournalLine('P', key, data.length);
+                trimToSize();
+            }
+        }
 
-                @Override
-                public void onBannerAdLoaded(@NonNull SASAdInfo sasAdInfo) {
-                    maxAdViewAdapterListener.onAdViewAdLoaded(bannerView);
-                    maxAdViewAdapterListener.onAdViewAdDisplayed();
+        private synchronized void setMaxSize(long maxSize) {
+            if (this.maxSize != maxSize) {
+                this.maxSize = maxSize;
+                trimToSize();
+            }
+        }
+
+        private synchronized void remove(@NonNull String key) {
+            Long entrySize = entries.remove(key);
+            if (entrySize != null) {
+                size -= entrySize;
+                new File(directory, key).delete();
+                appendJournalLine('D', key, 0);
+            }
+        }
+
+        private void trimToSize() {
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                Map.Entry<String, Long> eldestEntry = iterator.next();
+                iterator.remove();
+                size -= eldestEntry.getValue();
+                new File(directory, eldestEntry.getKey()).delete();
+                appendJournalLine('D', eldestEntry.getKey(), 0);
+            }
+        }
+
+        private void readJournal() {
+            File journalFile = new File(directory, JOURNAL_FILE_NAME);
+            File journalTempFile = new File(directory, JOURNAL_TEMP_FILE_NAME);
+
+            // the process may have died while the journal was being rebuilt
+            if (journalTempFile.exists()) {
+                if (journalFile.exists()) {
+                    journalTempFile.delete();
+                } else {
+                    journalTempFile.renameTo(journalFile);
                 }
+            }
 
-                @Override
-                public void onBannerAdFailedToLoad(@NonNull SASException e) {
-                    if (e.getType() == SASException.Type.NO_AD) {
-                        maxAdViewAdapterListener.onAdViewAdLoadFailed(MaxAdapterError.NO_FILL);
-                    } if (e.getType() == SASException.Type.TIMEOUT) {
-                        maxAdViewAdapterListener.onAdViewAdLoadFailed(MaxAdapterError.TIMEOUT);
-                    } else {
-                        maxAdViewAdapterListener.onAdViewAdLoadFailed(MaxAdapterError.UNSPECIFIED);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), "UTF-8"))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(" ");
+                    if (parts.length < 2) {
+                        // truncated last line
+                        continue;
+                    }
+
+                    switch (parts[0]) {
+                        case "P":
+                            if (parts.length == 3) {
+                                Long previousSize = entries.put(parts[1], Long.parseLong(parts[2]));
+                                if (previousSize != null) {
+                                    size -= previousSize;
+                                }
+                                size += entries.get(parts[1]);
+                            }
+                            break;
+
+                        case "R":
+                            entries.get(parts[1]);
+                            break;
+
+                        case "D":
+                            Long removedSize = entries.remove(parts[1]);
+                            if (removedSize != null) {
+                                size -= removedSize;
+                            }
+                            break;
                     }
                 }
+            } catch (IOException | NumberFormatException e) {
+                // missing or corrupted journal, the entries read so far are checked against the files below
+            }
 
-                @Override
-                public void onBannerAdClicked() {
-                    maxAdViewAdapterListener.onAdViewAdClicked();
+            // drop entries whose file is missing or was not completely written
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                if (new File(directory, entry.getKey()).length() != entry.getValue()) {
+                    iterator.remove();
+                    size -= entry.getValue();
                 }
-            });
+            }
+        }
 
-            bannerView.loadAd(adPlacement);
-        });
-    }
+        private void deleteUnreferencedFiles() {
+            File[] files = directory.listFiles();
+            if (files == null) {
+                return;
+            }
 
-    /// Interstitial adapter implementation
+            for (File file : files) {
+                String name = file.getName();
+                if (!name.equals(JOURNAL_FILE_NAME) && !entries.containsKey(name)) {
+                    file.delete();
+                }
+            }
+        }
 
-    @Override
-    public void loadInterstitialAd(MaxAdapterResponseParameters maxAdapterResponseParameters, Activity activity, MaxInterstitialAdapterListener maxInterstitialAdapterListener) {
-        SASAdPlacement adPlacement = convertToAdPlacement(maxAdapterResponseParameters.getThirdPartyAdPlacementId());
+        private void rebuildJournal() {
+            closeJournal();
 
-        if (adPlacement == null) {
-            Log.e(mediationTag(), "The PlacementId found is not a valid Equativ placement. This placement should be formatted like: <site id>/<page id>/<format id>[/<targeting string> (optional)] (ex: 123/456/789/targetingString or 123/456/789). The invalid found PlacementId string: " + maxAdapterResponseParameters.getThirdPartyAdPlacementId());
-            maxInterstitialAdapterListener.onInterstitialAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
-            return;
-        }
+            File journalFile = new File(directory, JOURNAL_FILE_NAME);
+            File journalTempFile = new File(directory, JOURNAL_TEMP_FILE_NAME);
 
-        // Configure Smart Display SDK
-        SASConfiguration.INSTANCE.configure(activity);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalTempFile), "UTF-8"))) {
+                for (Map.Entry<String, Long> entry : entries.entrySet()) {
+                    writer.write("P " + entry.getKey() + " " + entry.getValue() + "\n");
+                }
+            } catch (IOException e) {
+                journalTempFile.delete();
+                return;
+            }
 
-        // Execute in UI thread
-        mainLooperHandler.post(() -> {
-            if (interstitialManager != null) {
-                interstitialManager.onDestroy();
-                interstitialManager = null;
+            if (journalTempFile.renameTo(journalFile)) {
+                redundantJournalLineCount = 0;
             }
 
-            interstitialManager = new SASInterstitialManager(activity, adPlacement);
+            try {
+                journalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), "UTF-8"));
+            } catch (IOException e) {
+                journalWriter = null;
+            }
+        }
 
-            interstitialManager.setInterstitialManagerListener(new SASInterstitialManager.InterstitialManagerListener() {
+        private void appendJournalLine(char operation, @NonNull String key, long entrySize) {
+            if (journalWriter == null) {
+                return;
+            }
 
-                @Override
-                public void onInterstitialAdAudioStop() {
-                    // not supported by AppLovin
-                }
+            try {
+                journalWriter.write(operation == 'P' ? operation + " " + key + " " + entrySize + "\n" : operation + " " + key + "\n");
+                journalWriter.flush();
+            } catch (IOException e) {
+                closeJournal();
+                return;
+            }
 
-                @Override
-                public void onInterstitialAdAudioStart() {
-                    // not supported by AppLovin
-                }
+            if (operation != 'P' && ++redundantJournalLineCount >= MAX_REDUNDANT_JOURNAL_LINES
+                    && redundantJournalLineCount >= entries.size()) {
+                rebuildJournal();
+            }
+        }
 
-                @Override
-                public void onInterstitialAdLoaded(@NonNull SASAdInfo sasAdInfo) {
-                    maxInterstitialAdapterListener.onInterstitialAdLoaded();
+        private void closeJournal() {
+            if (journalWriter != null) {
+                try {
+                    journalWriter.close();
+                } catch (IOException ignored) {
                 }
+                journalWriter = null;
+            }
+        }
 
-                @Override
-                public void onInterstitialAdFailedToLoad(@NonNull SASException e) {
-                    if (e.getType() == SASException.Type.NO_AD) {
-                        maxInterstitialAdapterListener.onInterstitialAdLoadFailed(MaxAdapterError.NO_FILL);
-                    } if (e.getType() == SASException.Type.TIMEOUT) {
-                        maxInterstitialAdapterListener.onInterstitialAdLoadFailed(MaxAdapterError.TIMEOUT);
-                    } else {
-                        maxInterstitialAdapterListener.onInterstitialAdLoadFailed(MaxAdapterError.UNSPECIFIED);
+        @NonNull
+        private static byte[] readFile(@NonNull File file) throws IOException {
+            byte[] data = new byte[(int) file.length()];
+            try (InputStream inputStream = new FileInputStream(file)) {
+                int offset = 0;
+                while (offset < data.length) {
+                    int readCount = inputStream.read(data, offset, data.length - offset);
+                    if (readCount == -1) {
+                        throw new IOException("Unexpected end of file " + file);
                     }
+                    offset += readCount;
                 }
+            }
+            return data;
+        }
 
-                @Override
-                public void onInterstitialAdShown() {
-                    maxInterstitialAdapterListener.onInterstitialAdDisplayed();
-                }
-
-                @Override
-                public void onInterstitialAdFailedToShow(@NonNull SASException e) {
-                    maxInterstitialAdapterListener.onInterstitialAdDisplayFailed(MaxAdapterError.INTERNAL_ERROR);
+        @NonNull
+        private static String keyFor(@NonNull String url) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"));
+                StringBuilder key = new StringBuilder(digest.length * 2);
+                for (byte b : digest) {
+                    key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
                 }
+                return key.toString();
+            } catch (Exception e) {
+                return Integer.toHexString(url.hashCode());
+            }
+        }
+    }
 
-                @Override
-                public void onInterstitialAdClosed() {
-                    maxInterstitialAdapterListener.onInterstitialAdHidden();
-                }
+    /**
+     * @return the image at the given URL fitting in the target size, retained in the native bitmap pool for the
+     * given loader, or null if it could not be loaded.
+     * @throws CreativeHttpClient.ConnectionLimitException if the image must be downloaded and its host has no
+     * connection available.
+     */
+    @Nullable
+    private static Bitmap scaledBitmapFromUrl(@Nullable String url, int targetWidth, int targetHeight,
+                                              @NonNull NativeImageKind kind, @NonNull NativeAssetsLoader loader)
+            throws CreativeHttpClient.ConnectionLimitException {
+        NativeImageCache cache = nativeImageCache;
+        String cacheKey = null;
+        if (cache != null && url != null) {
+            cacheKey = NativeImageCache.keyFor(url, targetWidth, targetHeight);
+            Bitmap cachedBitmap = cache.getAndRetain(cacheKey);
+            if (cachedBitmap != null) {
+                return cachedBitmap;
+            }
+        }
 
-                @Override
-                public void onInterstitialAdClicked() {
-                    maxInterstitialAdapterListener.onInterstitialAdClicked();
-                }
-            });
+        Bitmap result = null;
+        try {
+            byte[] imageData = loadImageData(url, loader);
+            result = decodeScaledBitmap(imageData, targetWidth, targetHeight, kind);
+            if (url != null) {
+                updateNativeAssetDiskCache(url, imageData, result != null);
+            }
+        } catch (CreativeHttpClient.ConnectionLimitException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
 
-            interstitialManager.loadAd();
-        });
+        if (result != null) {
+            nativeBitmapPool.retain(result);
+            if (cacheKey != null) {
+                cache.retainAndPut(cacheKey, result);
+            }
+        }
+        return result;
     }
 
-    @Override
-    public void showInterstitialAd(MaxAdapterResponseParameters maxAdapterResponseParameters, Activity activity, MaxInterstitialAdapterListener maxInterstitialAdapterListener) {
-        if (interstitialManager != null && interstitialManager.getAdStatus() == SASAdStatus.READY) {
-            interstitialManager.show();
-        } else {
-            maxInterstitialAdapterListener.onInterstitialAdDisplayFailed(MaxAdapterError.AD_NOT_READY);
+    @NonNull
+    private static byte[] loadImageData(@Nullable String url, @NonNull NativeAssetsLoader loader) throws IOException {
+        NativeAssetDiskCache diskCache = url != null ? getNativeAssetDiskCache() : null;
+        if (diskCache != null) {
+            byte[] cachedImageData = diskCache.get(url);
+            if (cachedImageData != null) {
+                return cachedImageData;
+            }
         }
+
+        // stored in the disk cache by the caller, once decoded
+        return creativeHttpClient.download(url, loader);
     }
 
-    /// Native Ad Adapter Implementation
+    /**
+     * Decode the given image data to a bitmap fitting in the target size, without allocating the full
+     * resolution bitmap: a first pass only reads the image bounds, then the image is subsampled by the
+     * largest power of two keeping it bigger than the target size, and the decoder applies the remaining
+     * scaling itself. The peak memory used is therefore close to the size of the final bitmap.
+     *
+     * @param imageData The encoded image.
+     * @param targetWidth The width the image should fit in, the image is not scaled if not strictly positive.
+     * @param targetHeight The height the image should fit in, the image is not scaled if not strictly positive.
+     * @param kind The kind of the image, selecting its pixel format.
+     * @return the decoded bitmap, or null if the image data cannot be decoded.
+     */
+    @Nullable
+    private static Bitmap decodeScaledBitmap(@NonNull byte[] imageData, int targetWidth, int targetHeight, @NonNull NativeImageKind kind) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
 
-    @Override
-    public void loadNativeAd(MaxAdapterResponseParameters maxAdapterResponseParameters,
-                             Activity activity,
-                             MaxNativeAdAdapterListener maxNativeAdAdapterListener) {
-        SASAdPlacement adPlacement = convertToAdPlacement(maxAdapterResponseParameters.getThirdPartyAdPlacementId());
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
 
-        if (adPlacement == null) {
-            Log.e(mediationTag(), "The PlacementId found is not a valid Equativ placement. This placement should be formatted like: <site id>/<page id>/<format id>[/<targeting string> (optional)] (ex: 123/456/789/targetingString or 123/456/789). The invalid found PlacementId string: " + maxAdapterResponseParameters.getThirdPartyAdPlacementId());
-            maxNativeAdAdapterListener.onNativeAdLoadFailed(new MaxAdapterError(MaxAdapterError.ERROR_CODE_INVALID_CONFIGURATION));
-            return;
+        options.inJustDecodeBounds = false;
+        int decodedWidth = options.outWidth;
+        int decodedHeight = options.outHeight;
+
+        boolean scaled = targetWidth > 0 && targetHeight > 0;
+        if (scaled) {
+            double resizeRatio = Math.min((double) targetWidth / options.outWidth, (double) targetHeight / options.outHeight);
+            int scaledWidth = Math.max(1, (int) (options.outWidth * resizeRatio));
+            int scaledHeight = Math.max(1, (int) (options.outHeight * resizeRatio));
+
+            int sampleSize = 1;
+            while (options.outWidth / (sampleSize * 2) >= scaledWidth && options.outHeight / (sampleSize * 2) >= scaledHeight) {
+                sampleSize *= 2;
+            }
+            options.inSampleSize = sampleSize;
+
+            // let the decoder scale the subsampled image to the final size in the same pass
+            int sampledWidth = options.outWidth / sampleSize;
+            int sampledHeight = options.outHeight / sampleSize;
+            decodedWidth = sampledWidth;
+            decodedHeight = sampledHeight;
+            if (sampledWidth != scaledWidth) {
+                options.inScaled = true;
+                options.inDensity = sampledWidth;
+                options.inTargetDensity = scaledWidth;
+                decodedWidth = scaledWidth;
+                decodedHeight = (int) (sampledHeight * ((float) scaledWidth / sampledWidth) + 0.5f);
+            }
         }
 
-        // Configure Smart Display SDK
-        SASConfiguration.INSTANCE.configure(activity);
+        // JPEG images never have transparency, other formats are only known to be opaque once decoded
+        Bitmap.Config config = getNativeImageConfig(kind, "image/jpeg".equals(options.outMimeType));
+        options.inPreferredConfig = config;
 
-        // Clean up if needed
-        if (equativMaxNativeAd != null) {
-            equativMaxNativeAd.unregisterView();
-            equativMaxNativeAd = null;
+        // hardware bitmaps are immutable and cannot be decoded into a pooled bitmap
+        if (isNativeBitmapPoolEnabled() && (config == Bitmap.Config.ARGB_8888 || config == Bitmap.Config.RGB_565)) {
+            options.inMutable = true;
+            options.inBitmap = nativeBitmapPool.get(decodedWidth, decodedHeight, config == Bitmap.Config.RGB_565 ? 2 : 4);
         }
 
-        nativeAdView = new SASNativeAdView(activity);
+        Bitmap result;
+        try {
+            result = BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
+        } catch (IllegalArgumentException e) {
+            // the pooled bitmap is too small for the decoded image, it is dropped
+            options.inBitmap = null;
+            result = BitmapFactory.decodeByteArray(imageData, 0, imageData.length, options);
+        }
 
-        nativeAdView.setNativeAdListener(new SASNativeAdView.NativeAdListener() {
-            @Override
-            public void onNativeAdLoaded(@NonNull SASAdInfo adInfo, @NonNull SASNativeAdAssets nativeAdAssets) {
+        if (result != null && scaled) {
+            // the density is only used to scale while decoding, the bitmap must not be scaled again when drawn
+            result.setDensity(Bitmap.DENSITY_NONE);
+        }
+        return result;
+    }
 
-                // need to spawn a thread different from main thread to perform bitmap downloads
-                Thread renderThread = new Thread(() -> {
-                    Bitmap iconBitmap = null;
-                    if (nativeAdAssets.getIconImage() != null) {
-                        SASNativeAdAssets.ViewAsset iconAsset = nativeAdAssets.getIconImage();
-                        if (iconAsset.getUrl() != null && !iconAsset.getUrl().isEmpty()) {
-                            iconBitmap = EquativMediationAdapter.scaledBitmapFromUrl(
-                                    iconAsset.getUrl(),
-                                    iconAsset.getWidth() == null? 0 : iconAsset.getWidth(),
-                                    iconAsset.getHeight() == null? 0 : iconAsset.getHeight());
-                        }
-                    }
+    /**
+     * Media view of the native ads, displaying a cover bitmap retained in the native bitmap pool until it is replaced
+     * or the native ad is released. When the cover decoding is deferred, it decodes the cover image at its own laid out
+     * size instead of the size declared by the creative, and only the encoded image is kept until then. Decoded bitmaps
+     * are shared through the native image cache, keyed by their size, so that native ads displaying the same creative
+     * in slots of the same size share their pixels. It is only accessed from the main thread, apart from the decoding
+     * done on the native asset executor.
+     */
+    private static class NativeCoverImageView extends ImageView {
 
-                    Bitmap coverBitmap = null;
-                    if (nativeAdAssets.getMainView() != null) {
-                        SASNativeAdAssets.ViewAsset mainViewAsset = nativeAdAssets.getMainView();
-                        if (mainViewAsset.getUrl() != null && !mainViewAsset.getUrl().isEmpty()) {
-                            coverBitmap = EquativMediationAdapter.scaledBitmapFromUrl(
-                                    mainViewAsset.getUrl(),
-                                    mainViewAsset.getWidth() == null? 0 : mainViewAsset.getWidth(),
-                                    mainViewAsset.getHeight() == null? 0 : mainViewAsset.getHeight());
-                        }
-                    }
+        @Nullable
+        private String url = null;
 
-                    Bitmap finalIconBitmap = iconBitmap;
-                    Bitmap finalCoverBitmap = coverBitmap;
+        @Nullable
+        private byte[] imageData = null;
 
-                    mainLooperHandler.post(() -> {
-                        MaxNativeAd.MaxNativeAdImage iconImage = null;
-                        if (finalIconBitmap != null) {
-                            Drawable iconDrawable = new BitmapDrawable(activity.getResources(), finalIconBitmap);
-                            iconImage = new MaxNativeAd.MaxNativeAdImage(iconDrawable);
-                        }
+        @Nullable
+        private Bitmap coverBitmap = null;
 
-                        ImageView coverImageView = null;
-                        if (finalCoverBitmap != null) {
-                            coverImageView = new ImageView(activity);
-                            coverImageView.setImageBitmap(finalCoverBitmap);
-                        }
+        // size of the displayed or decoding bitmap, 0 for the size of the image, -1 if no decoding was started
+        private int decodedWidth = -1;
 
-                        MaxNativeAd.Builder maxNativeAdBuilder = new MaxNativeAd.Builder()
-                                .setTitle(nativeAdAssets.getTitle())
-                                .setBody(nativeAdAssets.getBody())
-                                .setCallToAction(nativeAdAssets.getCallToAction())
-                                .setStarRating(nativeAdAssets.getRating())
-                                .setIcon(iconImage)
-                                .setMediaView(coverImageView);
+        private int decodedHeight = -1;
 
-                        EquativMediationAdapter.this.equativMaxNativeAd =
-                                new EquativMaxNativeAd(maxNativeAdBuilder, nativeAdView, maxNativeAdAdapterListener);
+        private boolean laidOut = false;
 
-                        maxNativeAdAdapterListener.onNativeAdLoaded(equativMaxNativeAd, null);
-                    });
-                });
+        @Nullable
+        private Future<?> decodeTask = null;
+
+        private boolean released = false;
+
+        private boolean heapBytesRecorded = false;
+
+        public NativeCoverImageView(@NonNull Context context) {
+            super(context);
+        }
 
-                renderThread.start();
+        /**
+         * Display the given cover bitmap, retained until it is replaced or this view is released.
+         */
+        private void setCoverBitmap(@NonNull Bitmap bitmap) {
+            if (released) {
+                return;
             }
 
-            @Override
-            public void onNativeAdFailedToLoad(@NonNull SASException e) {
-                if (e.getType() == SASException.Type.NO_AD) {
-                    maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.NO_FILL);
-                } if (e.getType() == SASException.Type.TIMEOUT) {
-                    maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.TIMEOUT);
-                } else {
-                    maxNativeAdAdapterListener.onNativeAdLoadFailed(MaxAdapterError.UNSPECIFIED);
-                }
+            nativeBitmapPool.retain(bitmap);
+            setImageBitmap(bitmap);
+            nativeBitmapPool.release(coverBitmap);
+            coverBitmap = bitmap;
+
+            // a cover decoded again at another size is not counted twice
+            if (!heapBytesRecorded) {
+                heapBytesRecorded = true;
+                recordNativeImageHeapBytes(NativeImageKind.COVER, bitmap);
             }
+        }
 
-            @Override
-            public void onNativeAdClicked() {
-                maxNativeAdAdapterListener.onNativeAdClicked();
+        private void setImageData(@NonNull String url, @NonNull byte[] imageData) {
+            if (released) {
+                return;
             }
 
-            @Override
-            public void onNativeAdRequestClose() {
-                // not supported by Applovin
+            this.url = url;
+            this.imageData = imageData;
+            decodeAtLayoutSize();
+        }
+
+        /**
+         * Stop displaying the cover so that its bitmap can be reused, once the native ad is released. Must be called
+         * from the main thread, like all the accesses to the decoding task.
+         */
+        private void release() {
+            released = true;
+            imageData = null;
+
+            if (decodeTask != null) {
+                decodeTask.cancel(false);
+                decodeTask = null;
             }
 
-            @Nullable
-            @Override
-            public SASNativeAdViewBinder onNativeAdViewBinderRequested(@NonNull SASNativeAdAssets sasNativeAdAssets) {
-                return null;
+            setImageDrawable(null);
+            nativeBitmapPool.release(coverBitmap);
+            coverBitmap = null;
+        }
+
+        @Override
+        protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+            super.onSizeChanged(w, h, oldw, oldh);
+            if (w > 0 && h > 0) {
+                decodeIfNeeded(w, h);
             }
-        });
+        }
 
-        nativeAdView.loadAd(adPlacement);
-    }
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            super.onLayout(changed, left, top, right, bottom);
+            if (!laidOut) {
+                laidOut = true;
+                decodeAtLayoutSize();
+            }
+        }
 
-    @Nullable
-    private static Bitmap scaledBitmapFromUrl(@Nullable String url, int targetWidth, int targetHeight) {
-        Bitmap result = null;
-        try {
-            InputStream inputStream = (InputStream) new URL(url).getContent();
-            result = BitmapFactory.decodeStream(inputStream);
-            if (targetWidth > 0 && targetHeight > 0) {
-                double bWidth = result.getWidth();
-                double bHeight = result.getHeight();
-                double resizeRatio = Math.min(targetWidth / bWidth, targetHeight / bHeight);
-
-                result = Bitmap.createScaledBitmap(
-                        result,
-                        (int)(bWidth * resizeRatio),
-                        (int)(bHeight * resizeRatio),
-                        true
-                );
+        /**
+         * Decode the cover at the size of this view. A view laid out without a size, for instance a wrap_content
+         * view without any image yet, never gets one until it displays an image: the cover is then decoded at its own size.
+         */
+        private void decodeAtLayoutSize() {
+            if (getWidth() > 0 && getHeight() > 0) {
+                decodeIfNeeded(getWidth(), getHeight());
+            } else if (laidOut) {
+                decodeIfNeeded(0, 0);
+            }
+        }
+
+        /**
+         * Decode the cover to fit in the given size, or at the size of the image if it is 0. The encoded image is
+         * dropped once its decoding is displayed, a later size change scaling the displayed bitmap instead.
+         */
+        private void decodeIfNeeded(int width, int height) {
+            String url = this.url;
+            byte[] imageData = this.imageData;
+            if (url == null || imageData == null || (width == decodedWidth && height == decodedHeight)) {
+                return;
+            }
+
+            decodedWidth = width;
+            decodedHeight = height;
+
+            if (decodeTask != null) {
+                decodeTask.cancel(false);
+                decodeTask = null;
+            }
+
+            NativeImageCache cache = nativeImageCache;
+            String cacheKey = cache != null ? NativeImageCache.keyFor(url, width, height) : null;
+            Bitmap cachedBitmap = cacheKey != null ? cache.getAndRetain(cacheKey) : null;
+            if (cachedBitmap != null) {
+                setCoverBitmap(cachedBitmap);
+                nativeBitmapPool.release(cachedBitmap);
+                this.imageData = null;
+                return;
+            }
+
+            try {
+                decodeTask = getNativeAssetExecutor().submit(() -> {
+                    Bitmap bitmap = decodeScaledBitmap(imageData, width, height, NativeImageKind.COVER);
+                    updateNativeAssetDiskCache(url, imageData, bitmap != null);
+                    if (bitmap == null) {
+                        return;
+                    }
+
+                    // retained until displayed, so that an eviction from the cache does not pool it in the meantime
+                    nativeBitmapPool.retain(bitmap);
+                    if (cacheKey != null) {
+                        cache.retainAndPut(cacheKey, bitmap);
+                    }
+
+                    post(() -> {
+                        // ignore the result of a decoding superseded by a new size
+                        if (width == decodedWidth && height == decodedHeight) {
+                            setCoverBitmap(bitmap);
+                            this.imageData = null;
+                        }
+                        nativeBitmapPool.release(bitmap);
+                    });
+                });
+            } catch (RejectedExecutionException e) {
+                // decoded again at the next size change
+                decodedWidth = -1;
+                decodedHeight = -1;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return result;
     }
 
     private static class EquativMaxNativeAd extends MaxNativeAd {
@@ -465,12 +5450,30 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
         @NonNull
         private final MaxNativeAdAdapterListener maxNativeAdAdapterListener;
 
+        // images retained in the native bitmap pool until the native ad is released
+        @Nullable
+        private Bitmap iconBitmap;
+
+        // drawable of the icon handed to AppLovin MAX, whose callback is the image view displaying it, if any
+        @Nullable
+        private final Drawable iconDrawable;
+
+        @Nullable
+        private NativeCoverImageView coverImageView;
+
         public EquativMaxNativeAd(@NonNull Builder builder,
                                   @NonNull SASNativeAdView nativeAdView,
+                                  @Nullable Bitmap iconBitmap,
+                                  @Nullable Drawable iconDrawable,
+                                  @Nullable NativeCoverImageView coverImageView,
                                   @NonNull MaxNativeAdAdapterListener maxNativeAdListener) {
             super(builder);
             this.nativeAdView = nativeAdView;
+            this.iconBitmap = iconBitmap;
+            this.iconDrawable = iconDrawable;
+            this.coverImageView = coverImageView;
             this.maxNativeAdAdapterListener = maxNativeAdListener;
+            nativeBitmapPool.retain(iconBitmap);
         }
 
         @Override
@@ -494,8 +5497,29 @@ public class EquativMediationAdapter extends MediationAdapterBase implements Max
             return true;
         }
 
+        /**
+         * Destroy the native ad view and release the images. Must be called from the main thread.
+         */
         private void unregisterView() {
             nativeAdView.onDestroy();
+            releaseImages();
+        }
+
+        /**
+         * Release the images of this native ad so that their bitmaps can be reused once no view displays them anymore.
+         * Must be called from the main thread.
+         */
+        private void releaseImages() {
+            // an icon still set in an image view of AppLovin MAX may be drawn again, it is left to the garbage collector
+            if (iconDrawable == null || iconDrawable.getCallback() == null) {
+                nativeBitmapPool.release(iconBitmap);
+            }
+            iconBitmap = null;
+
+            if (coverImageView != null) {
+                coverImageView.release();
+                coverImageView = null;
+            }
         }
     }
 }